@@ -18,13 +18,33 @@
  */
 package org.apache.sling.servlethelpers;
 
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 import org.apache.sling.api.adapter.AdapterManager;
 import org.apache.sling.api.adapter.SlingAdaptable;
 
 final class AdaptableUtil {
 
+    /** Handle on the private SlingAdaptable.ADAPTER_MANAGER field, resolved once */
+    private static final VarHandle ADAPTER_MANAGER;
+
+    private static final ReflectiveOperationException ADAPTER_MANAGER_LOOKUP_FAILURE;
+
+    static {
+        VarHandle handle = null;
+        ReflectiveOperationException failure = null;
+        try {
+            handle = MethodHandles.privateLookupIn(SlingAdaptable.class, MethodHandles.lookup())
+                    .findStaticVarHandle(SlingAdaptable.class, "ADAPTER_MANAGER", AdapterManager.class);
+        } catch (NoSuchFieldException | IllegalAccessException ex) {
+            // reported when the adapter manager is needed
+            failure = ex;
+        }
+        ADAPTER_MANAGER = handle;
+        ADAPTER_MANAGER_LOOKUP_FAILURE = failure;
+    }
+
     private AdaptableUtil() {
         // to hide the public ctor
     }
@@ -38,16 +58,15 @@ final class AdaptableUtil {
     }
 
     /**
-     * Get adapter manager via reflection.
-     * @return Adapter manager instance
+     * Get the adapter manager currently registered with SlingAdaptable.
+     * @return Adapter manager instance, null if none is registered
      */
-    private static AdapterManager getAdapterManager() {
-        try {
-            Field adapterManagerStaticField = SlingAdaptable.class.getDeclaredField("ADAPTER_MANAGER");
-            adapterManagerStaticField.setAccessible(true);
-            return (AdapterManager) adapterManagerStaticField.get(null);
-        } catch (NoSuchFieldException | IllegalArgumentException | IllegalAccessException ex) {
-            throw new RuntimeException("Unable to get AdapterManager instance from SlingAdaptable via reflection.", ex);
+    static AdapterManager getAdapterManager() {
+        if (ADAPTER_MANAGER == null) {
+            throw new RuntimeException(
+                    "Unable to get AdapterManager instance from SlingAdaptable via reflection.",
+                    ADAPTER_MANAGER_LOOKUP_FAILURE);
         }
+        return (AdapterManager) ADAPTER_MANAGER.getVolatile();
     }
 }
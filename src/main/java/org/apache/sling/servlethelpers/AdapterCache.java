@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.sling.api.adapter.AdapterManager;
+
+/**
+ * Cache of the adaptTo results of a single adaptable, in a small map keyed by the
+ * identity of the target type, as classes are only equal to themselves. Only non-null
+ * results are cached, so adapters that become available later are still used. The
+ * cache is dropped when a different {@link AdapterManager} is registered.
+ */
+final class AdapterCache {
+
+    private AdapterManager adapterManager;
+    private Map<Class<?>, Object> adapters;
+
+    /**
+     * @return the cached adapter for the supplied type, or the one provided by the adapter manager
+     */
+    @SuppressWarnings("unchecked")
+    <T> T adaptTo(Object adaptable, Class<T> type) {
+        final AdapterManager current = AdaptableUtil.getAdapterManager();
+        if (current == null) {
+            return null;
+        }
+        if (current != adapterManager) {
+            clear();
+            adapterManager = current;
+        }
+        T result = adapters == null ? null : (T) adapters.get(type);
+        if (result == null) {
+            result = current.getAdapter(adaptable, type);
+            if (result != null) {
+                if (adapters == null) {
+                    // most adaptables are adapted to one or two types
+                    adapters = new IdentityHashMap<>(4);
+                }
+                adapters.put(type, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops all cached adapters.
+     */
+    void clear() {
+        adapters = null;
+        adapterManager = null;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import jakarta.servlet.http.Cookie;
+
+/**
+ * Parses Cookie request headers and formats Set-Cookie response headers as
+ * defined by RFC 6265, with a single scan of each value and no regular expressions.
+ */
+final class CookieCodec {
+
+    private CookieCodec() {
+        // static methods only
+    }
+
+    /**
+     * Parses a Cookie header value like {@code a=1; b="2"}. Pairs without a name or
+     * without an equals sign are skipped, surrounding double quotes are removed from values.
+     *
+     * @param header Cookie header value
+     * @param consumer receives the name and value of each cookie, in header order
+     */
+    static void parse(String header, BiConsumer<String, String> consumer) {
+        final int length = header.length();
+        int start = 0;
+        while (start < length) {
+            int end = header.indexOf(';', start);
+            if (end < 0) {
+                end = length;
+            }
+            int equals = start;
+            while (equals < end && header.charAt(equals) != '=') {
+                equals++;
+            }
+            if (equals < end) {
+                final int nameStart = skipWhitespace(header, start, equals);
+                final int nameEnd = trimWhitespace(header, nameStart, equals);
+                int valueStart = skipWhitespace(header, equals + 1, end);
+                int valueEnd = trimWhitespace(header, valueStart, end);
+                if (valueEnd - valueStart >= 2
+                        && header.charAt(valueStart) == '"'
+                        && header.charAt(valueEnd - 1) == '"') {
+                    valueStart++;
+                    valueEnd--;
+                }
+                if (nameEnd > nameStart) {
+                    consumer.accept(header.substring(nameStart, nameEnd), header.substring(valueStart, valueEnd));
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    private static int skipWhitespace(String s, int start, int end) {
+        while (start < end && isWhitespace(s.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimWhitespace(String s, int start, int end) {
+        while (end > start && isWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * Formats the Set-Cookie header value for the supplied cookie, with all its
+     * attributes. An Expires attribute is added next to Max-Age for older clients.
+     *
+     * @param cookie Cookie
+     * @param now current time in milliseconds, used to compute the Expires attribute
+     * @return Set-Cookie header value
+     */
+    static String formatSetCookie(Cookie cookie, long now) {
+        final StringBuilder sb = new StringBuilder(64);
+        sb.append(cookie.getName()).append('=');
+        if (cookie.getValue() != null) {
+            sb.append(cookie.getValue());
+        }
+        final int maxAge = cookie.getMaxAge();
+        if (maxAge >= 0) {
+            sb.append("; Expires=").append(HttpDateCodec.format(maxAge == 0 ? 0 : now + maxAge * 1000L));
+        }
+        for (Map.Entry<String, String> attribute : cookie.getAttributes().entrySet()) {
+            sb.append("; ").append(attribute.getKey());
+            if (attribute.getValue() != null && !attribute.getValue().isEmpty()) {
+                sb.append('=').append(attribute.getValue());
+            }
+        }
+        return sb.toString();
+    }
+}
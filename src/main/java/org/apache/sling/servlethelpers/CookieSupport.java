@@ -18,6 +18,7 @@
  */
 package org.apache.sling.servlethelpers;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -26,29 +27,110 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * Manages cookies for request and response.
+ * Manages cookies for request and response. On the request, cookies are also
+ * parsed from the Cookie headers, when they are first needed after those
+ * headers changed. The array returned by {@link #getCookies()} is built once
+ * and reused until the cookies change.
  */
 class CookieSupport {
 
-    private Map<String, Cookie> cookies = new LinkedHashMap<>();
+    private static final String COOKIE_HEADER = "Cookie";
+
+    private final HeaderSupport headers;
+    private final Map<String, Cookie> cookies = new LinkedHashMap<>();
+    private Map<String, Cookie> headerCookies;
+    private boolean headersParsed = true;
+    private Cookie[] cookieArray;
+
+    CookieSupport() {
+        this(null);
+    }
+
+    /**
+     * @param headers request headers to parse Cookie headers from, null if there are none
+     */
+    CookieSupport(HeaderSupport headers) {
+        this.headers = headers;
+    }
 
     public void addCookie(@NotNull Cookie cookie) {
         cookies.put(cookie.getName(), cookie);
+        cookieArray = null;
     }
 
     public @Nullable Cookie getCookie(@NotNull String name) {
-        return cookies.get(name);
+        final Cookie cookie = cookies.get(name);
+        if (cookie != null) {
+            return cookie;
+        }
+        parseHeaders();
+        return headerCookies == null ? null : headerCookies.get(name);
     }
 
+    /**
+     * @return the cookies parsed from headers followed by the ones that were added, or null
+     *      if there are none. The same array is returned until the cookies change.
+     */
     public @Nullable Cookie[] getCookies() {
-        if (cookies.isEmpty()) {
-            return null;
-        } else {
-            return cookies.values().toArray(new Cookie[cookies.size()]);
+        parseHeaders();
+        if (cookieArray == null) {
+            final Map<String, Cookie> all;
+            if (headerCookies == null) {
+                all = cookies;
+            } else {
+                all = new LinkedHashMap<>(headerCookies);
+                // added cookies replace parsed ones with the same name
+                all.putAll(cookies);
+            }
+            if (all.isEmpty()) {
+                return null;
+            }
+            cookieArray = all.values().toArray(new Cookie[0]);
+        }
+        return cookieArray;
+    }
+
+    /**
+     * Must be called when a header is changed, to parse the Cookie headers again if needed.
+     *
+     * @param name header name
+     */
+    void headerChanged(String name) {
+        if (headers != null && COOKIE_HEADER.equalsIgnoreCase(name)) {
+            headersParsed = false;
+            cookieArray = null;
+        }
+    }
+
+    private void parseHeaders() {
+        if (headersParsed) {
+            return;
+        }
+        headersParsed = true;
+        headerCookies = null;
+        final Collection<String> values = headers.getHeaders(COOKIE_HEADER);
+        for (String value : values) {
+            CookieCodec.parse(value, this::addHeaderCookie);
+        }
+    }
+
+    private void addHeaderCookie(String name, String value) {
+        final Cookie cookie;
+        try {
+            cookie = new Cookie(name, value);
+        } catch (IllegalArgumentException e) {
+            // not a valid cookie name, ignored like servlet containers do
+            return;
+        }
+        if (headerCookies == null) {
+            headerCookies = new LinkedHashMap<>();
         }
+        // the first cookie with a given name wins, it's the one with the most specific path
+        headerCookies.putIfAbsent(name, cookie);
     }
 
     public void reset() {
         cookies.clear();
+        cookieArray = null;
     }
 }
@@ -19,67 +19,78 @@
 package org.apache.sling.servlethelpers;
 
 import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.GregorianCalendar;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.Vector;
+import java.util.Locale;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.Strings;
 import org.apache.commons.lang3.math.NumberUtils;
 
 /**
  * Manage HTTP headers for request and response.
+ * Header names are case-insensitive, the name used when a header is first
+ * added is the one that {@link #getHeaderNames()} returns.
  */
 class HeaderSupport {
 
-    private static final DateTimeFormatter RFC_1123_DATE_TIME = DateTimeFormatter.RFC_1123_DATE_TIME;
+    /** Headers by lower case name, in insertion order */
+    private final Map<String, Header> headers = new LinkedHashMap<>();
 
-    private List<HeaderValue> headers = new ArrayList<>();
+    /**
+     * Read-only snapshot of the header names, rebuilt only after the headers changed,
+     * so callers can change headers while iterating over it
+     */
+    private List<String> headerNames;
 
-    private static class HeaderValue {
+    private static class Header {
 
-        private String key;
-        private String value;
+        private final String name;
+        private final List<String> values = new ArrayList<>(1);
 
-        public HeaderValue(String key, String value) {
-            this.key = key;
-            this.value = value;
-        }
+        /** Read-only snapshot of the values, rebuilt only after a value was added */
+        private List<String> readOnlyValues;
 
-        public String getKey() {
-            return this.key;
+        Header(String name) {
+            this.name = name;
         }
 
-        public String getValue() {
-            return this.value;
+        List<String> readOnlyValues() {
+            if (readOnlyValues == null) {
+                readOnlyValues = Collections.unmodifiableList(new ArrayList<>(values));
+            }
+            return readOnlyValues;
         }
     }
 
+    private static String keyOf(String name) {
+        // returns the same String if it's already lower case
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
     public void addHeader(String name, String value) {
-        headers.add(new HeaderValue(name, value));
+        final Header header = headers.computeIfAbsent(keyOf(name), k -> {
+            headerNames = null;
+            return new Header(name);
+        });
+        header.values.add(value);
+        header.readOnlyValues = null;
     }
 
     public void addIntHeader(String name, int value) {
-        headers.add(new HeaderValue(name, Integer.toString(value)));
+        addHeader(name, Integer.toString(value));
     }
 
     public void addDateHeader(String name, long date) {
-        addDateHeader(name, new Date(date).toInstant());
+        addHeader(name, HttpDateCodec.format(date));
     }
 
     public void addDateHeader(String name, Instant date) {
-        headers.add(new HeaderValue(name, date.atOffset(ZoneOffset.UTC).format(RFC_1123_DATE_TIME)));
+        addHeader(name, HttpDateCodec.format(date.toEpochMilli()));
     }
 
     public void setHeader(String name, String value) {
@@ -98,24 +109,18 @@ class HeaderSupport {
     }
 
     private void removeHeaders(String name) {
-        for (int i = this.headers.size() - 1; i >= 0; i--) {
-            if (Strings.CI.contains(this.headers.get(i).getKey(), name)) {
-                headers.remove(i);
-            }
+        if (headers.remove(keyOf(name)) != null) {
+            headerNames = null;
         }
     }
 
     public boolean containsHeader(String name) {
-        return !getHeaders(name).isEmpty();
+        return headers.containsKey(keyOf(name));
     }
 
     public String getHeader(String name) {
-        Collection<String> values = getHeaders(name);
-        if (!values.isEmpty()) {
-            return values.iterator().next();
-        } else {
-            return null;
-        }
+        final Header header = headers.get(keyOf(name));
+        return header == null ? null : header.values.get(0);
     }
 
     public int getIntHeader(String name) {
@@ -128,41 +133,38 @@ class HeaderSupport {
         if (StringUtils.isEmpty(value)) {
             return 0L;
         } else {
-            return parseDate(value).getTimeInMillis();
+            return HttpDateCodec.parse(value);
         }
     }
 
+    /**
+     * @return read-only snapshot of the values of the supplied header, case-insensitive
+     */
     public Collection<String> getHeaders(String name) {
-        List<String> values = new ArrayList<>();
-        for (HeaderValue entry : headers) {
-            if (Strings.CI.contains(entry.getKey(), name)) {
-                values.add(entry.getValue());
-            }
-        }
-        return values;
+        final Header header = headers.get(keyOf(name));
+        return header == null ? Collections.emptyList() : header.readOnlyValues();
     }
 
+    /**
+     * @return read-only snapshot of the header names, in insertion order
+     */
     public Collection<String> getHeaderNames() {
-        Set<String> values = new HashSet<>();
-        for (HeaderValue entry : headers) {
-            values.add(entry.getKey());
+        if (headerNames == null) {
+            final List<String> names = new ArrayList<>(headers.size());
+            for (Header header : headers.values()) {
+                names.add(header.name);
+            }
+            headerNames = Collections.unmodifiableList(names);
         }
-        return values;
+        return headerNames;
     }
 
     public void reset() {
         headers.clear();
+        headerNames = null;
     }
 
     public static Enumeration<String> toEnumeration(Collection<String> collection) {
-        return new Vector<String>(collection).elements();
-    }
-
-    private static synchronized Calendar parseDate(String dateString) {
-        try {
-            return GregorianCalendar.from(ZonedDateTime.parse(dateString, RFC_1123_DATE_TIME));
-        } catch (DateTimeParseException ex) {
-            throw new IllegalArgumentException("Invalid date value: " + dateString, ex);
-        }
+        return Collections.enumeration(collection);
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Formats and parses RFC 1123 HTTP date header values without locking.
+ * The last formatted second is remembered, as headers are usually set
+ * with the current time, and recently parsed values are kept in a small
+ * cache, as the same conditional request headers are often read many times.
+ */
+final class HttpDateCodec {
+
+    static final int MAX_PARSE_CACHE_SIZE = 256;
+
+    private static final DateTimeFormatter RFC_1123_DATE_TIME =
+            DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private static volatile FormattedSecond lastFormatted = new FormattedSecond(Long.MIN_VALUE, null);
+
+    private static final Map<String, Long> PARSED = new ConcurrentHashMap<>();
+
+    private record FormattedSecond(long epochSecond, String value) {}
+
+    private HttpDateCodec() {
+        // static methods only
+    }
+
+    /**
+     * @param epochMillis milliseconds since the epoch, the sub-second part is ignored
+     * @return the RFC 1123 representation of the supplied time
+     */
+    static String format(long epochMillis) {
+        final long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        final FormattedSecond last = lastFormatted;
+        if (last.epochSecond() == epochSecond) {
+            return last.value();
+        }
+        final String value = RFC_1123_DATE_TIME.format(Instant.ofEpochSecond(epochSecond));
+        lastFormatted = new FormattedSecond(epochSecond, value);
+        return value;
+    }
+
+    /**
+     * @param value an RFC 1123 date
+     * @return milliseconds since the epoch
+     * @throws IllegalArgumentException if the value is not a valid RFC 1123 date
+     */
+    static long parse(String value) {
+        final Long cached = PARSED.get(value);
+        if (cached != null) {
+            return cached;
+        }
+        final long result;
+        try {
+            result = RFC_1123_DATE_TIME.parse(value, Instant::from).toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid date value: " + value, ex);
+        }
+        if (PARSED.size() >= MAX_PARSE_CACHE_SIZE) {
+            // cheap bound, the cache refills quickly with the values that are in use
+            PARSED.clear();
+        }
+        PARSED.put(value, result);
+        return result;
+    }
+
+    static int parseCacheSize() {
+        return PARSED.size();
+    }
+}
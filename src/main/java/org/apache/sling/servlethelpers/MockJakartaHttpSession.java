@@ -18,28 +18,38 @@
  */
 package org.apache.sling.servlethelpers;
 
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpSession;
-import org.apache.commons.collections4.IteratorUtils;
 import org.osgi.annotation.versioning.ConsumerType;
 
 /**
- * Mock {@link HttpSession} implementation.
+ * Mock {@link HttpSession} implementation. Sessions can be shared between threads.
+ * They expire once they have not been accessed for longer than their maximum
+ * inactive interval, which is checked when they are used. The sessions of a
+ * {@link MockSessionManager} can also be expired in the background, see
+ * {@link MockSessionManager#startSweeping}.
  */
 @ConsumerType
 public class MockJakartaHttpSession implements HttpSession {
 
-    private final Map<String, Object> attributeMap = new HashMap<>();
-    private final String sessionID = UUID.randomUUID().toString();
+    private final Map<String, Object> attributeMap = new ConcurrentHashMap<>();
+    private volatile String sessionID = newSessionId();
     private final long creationTime = System.currentTimeMillis();
-    private boolean invalidated = false;
-    private boolean isNew = true;
-    private int maxActiveInterval = 1800;
+    private volatile long lastAccessedTime = creationTime;
+    private volatile boolean invalidated = false;
+    /** Set once the invalidation started, while the session is still usable by the destroy listeners */
+    private volatile boolean invalidating = false;
+
+    private volatile boolean isNew = true;
+    private volatile int maxActiveInterval = 1800;
+    private volatile MockSessionManager manager;
 
     private final ServletContext servletContext;
 
@@ -51,6 +61,17 @@ public class MockJakartaHttpSession implements HttpSession {
         return new MockJakartaServletContext();
     }
 
+    /**
+     * @return a random version 4 UUID, from a per-thread generator that does not block
+     *      like the shared SecureRandom of {@link UUID#randomUUID()}
+     */
+    static String newSessionId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long msb = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        final long lsb = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(msb, lsb).toString();
+    }
+
     @Override
     public ServletContext getServletContext() {
         return this.servletContext;
@@ -65,7 +86,7 @@ public class MockJakartaHttpSession implements HttpSession {
     @Override
     public Enumeration<String> getAttributeNames() {
         checkInvalidatedState();
-        return IteratorUtils.asEnumeration(this.attributeMap.keySet().iterator());
+        return Collections.enumeration(this.attributeMap.keySet());
     }
 
     @Override
@@ -73,6 +94,23 @@ public class MockJakartaHttpSession implements HttpSession {
         return this.sessionID;
     }
 
+    /**
+     * Replaces the session ID by a new random one.
+     *
+     * @return the new session ID
+     */
+    String changeId() {
+        this.sessionID = newSessionId();
+        return this.sessionID;
+    }
+
+    /**
+     * @param manager manager to notify of attribute changes and of the invalidation
+     */
+    void setManager(MockSessionManager manager) {
+        this.manager = manager;
+    }
+
     @Override
     public long getCreationTime() {
         checkInvalidatedState();
@@ -82,27 +120,103 @@ public class MockJakartaHttpSession implements HttpSession {
     @Override
     public void removeAttribute(final String name) {
         checkInvalidatedState();
-        this.attributeMap.remove(name);
+        final Object oldValue = this.attributeMap.remove(name);
+        if (oldValue != null) {
+            attributeChanged(name, oldValue, null);
+        }
     }
 
+    /**
+     * Sets an attribute, a null value removes it.
+     */
     @Override
     public void setAttribute(final String name, final Object value) {
         checkInvalidatedState();
-        this.attributeMap.put(name, value);
+        final Object oldValue = value == null ? this.attributeMap.remove(name) : this.attributeMap.put(name, value);
+        if (oldValue != null || value != null) {
+            attributeChanged(name, oldValue, value);
+        }
+    }
+
+    private void attributeChanged(String name, Object oldValue, Object newValue) {
+        final MockSessionManager m = this.manager;
+        if (m != null) {
+            m.attributeChanged(this, name, oldValue, newValue);
+        }
     }
 
     @Override
     public void invalidate() {
-        checkInvalidatedState();
-        this.invalidated = true;
+        if (!markInvalidated()) {
+            throw new IllegalStateException("Session is already invalidated.");
+        }
+    }
+
+    /**
+     * Invalidates the session. Like in a servlet container the manager notifies
+     * the listeners before the session becomes unusable.
+     *
+     * @return true if this call invalidated the session, false if it already was
+     */
+    boolean markInvalidated() {
+        if (!startInvalidation()) {
+            return false;
+        }
+        completeInvalidation();
+        return true;
+    }
+
+    /**
+     * @return true if this call started the invalidation, false if it already was started
+     */
+    synchronized boolean startInvalidation() {
+        if (invalidating) {
+            return false;
+        }
+        invalidating = true;
+        return true;
+    }
+
+    /**
+     * Notifies the listeners through the manager, then makes the session unusable.
+     */
+    void completeInvalidation() {
+        final MockSessionManager m = this.manager;
+        if (m != null) {
+            m.sessionInvalidated(this);
+        }
+        invalidated = true;
     }
 
     private void checkInvalidatedState() {
-        if (invalidated) {
+        if (invalidated || (!invalidating && expireIfInactive(System.currentTimeMillis()))) {
             throw new IllegalStateException("Session is already invalidated.");
         }
     }
 
+    /**
+     * Invalidates the session if it has not been accessed for longer than its maximum inactive interval.
+     *
+     * @param now current time in milliseconds
+     * @return true if the session is expired
+     */
+    boolean expireIfInactive(long now) {
+        if (isInactive(now)) {
+            markInvalidated();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return true if the session has not been accessed for longer than its maximum inactive interval
+     */
+    boolean isInactive(long now) {
+        final int interval = maxActiveInterval;
+        return interval > 0 && now - lastAccessedTime > interval * 1000L;
+    }
+
     public boolean isInvalidated() {
         return invalidated;
     }
@@ -117,10 +231,21 @@ public class MockJakartaHttpSession implements HttpSession {
         this.isNew = isNew;
     }
 
+    /**
+     * Records an access to this session by a request, which delays its expiry.
+     * Nothing happens if the session is invalidated or expired.
+     */
+    public void access() {
+        final long now = System.currentTimeMillis();
+        if (!invalidating && !expireIfInactive(now)) {
+            this.lastAccessedTime = now;
+        }
+    }
+
     @Override
     public long getLastAccessedTime() {
         checkInvalidatedState();
-        return creationTime;
+        return lastAccessedTime;
     }
 
     @Override
@@ -128,6 +253,10 @@ public class MockJakartaHttpSession implements HttpSession {
         return maxActiveInterval;
     }
 
+    /**
+     * @param interval seconds after the last access at which the session expires,
+     *      zero or a negative value for sessions that never expire
+     */
     @Override
     public void setMaxInactiveInterval(final int interval) {
         this.maxActiveInterval = interval;
@@ -19,9 +19,12 @@
 package org.apache.sling.servlethelpers;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 
+import jakarta.servlet.http.Part;
 import org.apache.sling.api.request.RequestParameter;
 
 /**
@@ -37,6 +40,8 @@ class MockRequestParameter implements RequestParameter {
     private String filename;
 
     private byte[] content;
+    // file upload read from a multipart body, its content is only loaded when needed
+    private Part part;
 
     public MockRequestParameter(String name, String value) {
         this.name = name;
@@ -65,6 +70,16 @@ class MockRequestParameter implements RequestParameter {
         this.filename = filename;
     }
 
+    MockRequestParameter(Part part) {
+        this.name = part.getName();
+        this.value = null;
+        this.content = null;
+        this.part = part;
+        this.contentType = part.getContentType();
+        this.isFormField = false;
+        this.filename = part.getSubmittedFileName();
+    }
+
     void setName(String name) {
         this.name = name;
     }
@@ -82,6 +97,13 @@ class MockRequestParameter implements RequestParameter {
     }
 
     public byte[] get() {
+        if (this.part != null) {
+            try (InputStream in = this.part.getInputStream()) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         if (this.content == null && this.value != null) {
             try {
                 this.content = getString().getBytes(getEncoding());
@@ -99,6 +121,13 @@ class MockRequestParameter implements RequestParameter {
     }
 
     public InputStream getInputStream() {
+        if (this.part != null) {
+            try {
+                return this.part.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         return new ByteArrayInputStream(this.get());
     }
 
@@ -107,10 +136,13 @@ class MockRequestParameter implements RequestParameter {
     }
 
     public long getSize() {
-        return this.get().length;
+        return this.part != null ? this.part.getSize() : this.get().length;
     }
 
     public String getString() {
+        if (this.value == null && this.part != null) {
+            return new String(this.get());
+        }
         return this.value == null && this.content != null ? new String(this.content) : this.value;
     }
 
@@ -31,7 +31,18 @@ import org.apache.sling.api.request.RequestParameterMap;
  */
 class MockRequestParameterMap implements RequestParameterMap {
 
-    private final Map<String, RequestParameter[]> delegate = new HashMap<>();
+    private final Map<String, RequestParameter[]> delegate;
+
+    MockRequestParameterMap() {
+        this(new HashMap<>());
+    }
+
+    /**
+     * @param delegate the map that holds the parameters, used without copying it
+     */
+    MockRequestParameterMap(Map<String, RequestParameter[]> delegate) {
+        this.delegate = delegate;
+    }
 
     public RequestParameter getValue(String name) {
         RequestParameter[] params = getValues(name);
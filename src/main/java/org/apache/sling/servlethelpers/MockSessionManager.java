@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.time.Duration;
+import java.util.EventListener;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import jakarta.servlet.http.HttpSessionAttributeListener;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionIdListener;
+import jakarta.servlet.http.HttpSessionListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.osgi.annotation.versioning.ConsumerType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of {@link MockJakartaHttpSession}s shared by several requests, see
+ * {@link MockSlingJakartaHttpServletRequest#setSessionManager(MockSessionManager)}.
+ * Requests look up their session by the ID sent in the {@value #SESSION_COOKIE_NAME} cookie
+ * or the {@value #SESSION_PARAMETER_NAME} parameter.
+ * <p>
+ * Registered sessions expire after the idle timeout, which is checked when they are looked up
+ * and, if enabled with {@link #startSweeping(Duration)}, periodically in the background. When the maximum number of sessions
+ * is reached the least recently used session is invalidated. Sessions are looked up without
+ * locking, so the least recently used session is only approximated when sessions are used
+ * concurrently.
+ * <p>
+ * {@link HttpSessionListener}, {@link HttpSessionAttributeListener} and {@link HttpSessionIdListener}
+ * instances are notified asynchronously, in the order of the changes when the default executor
+ * is used. Like in a servlet container, {@link HttpSessionListener#sessionDestroyed} is called
+ * by the thread that invalidates the session, before the session becomes unusable, so the
+ * listeners can still read the session attributes. It can be called before the asynchronous
+ * notifications of earlier changes.
+ */
+@ConsumerType
+public class MockSessionManager {
+
+    /** Name of the cookie that carries the session ID */
+    public static final String SESSION_COOKIE_NAME = "JSESSIONID";
+
+    /** Name of the request parameter that carries the session ID when there is no cookie */
+    public static final String SESSION_PARAMETER_NAME = "jsessionid";
+
+    public static final int DEFAULT_MAX_SESSIONS = 10000;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private final int maxSessions;
+    private final int idleTimeoutSeconds;
+    private final Executor listenerExecutor;
+    private final Map<String, Registration> sessions = new ConcurrentHashMap<>();
+    private final List<EventListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService sweeper;
+
+    private static final Logger log = LoggerFactory.getLogger(MockSessionManager.class);
+
+    /**
+     * Creates a manager for {@link #DEFAULT_MAX_SESSIONS} sessions with a {@link #DEFAULT_IDLE_TIMEOUT}.
+     */
+    public MockSessionManager() {
+        this(DEFAULT_MAX_SESSIONS, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param maxSessions maximum number of sessions, the least recently used one is invalidated to stay below
+     * @param idleTimeout time after the last access at which a session expires
+     */
+    public MockSessionManager(int maxSessions, @NotNull Duration idleTimeout) {
+        this(maxSessions, idleTimeout, newListenerExecutor());
+    }
+
+    /**
+     * @param maxSessions maximum number of sessions, the least recently used one is invalidated to stay below
+     * @param idleTimeout time after the last access at which a session expires
+     * @param listenerExecutor executor that notifies the listeners, for example {@code Runnable::run}
+     *      to notify them synchronously
+     */
+    public MockSessionManager(int maxSessions, @NotNull Duration idleTimeout, @NotNull Executor listenerExecutor) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("maxSessions must be at least 1: " + maxSessions);
+        }
+        if (idleTimeout == null || idleTimeout.toSeconds() < 1) {
+            throw new IllegalArgumentException("idleTimeout must be at least one second: " + idleTimeout);
+        }
+        this.maxSessions = maxSessions;
+        this.idleTimeoutSeconds = (int) Math.min(idleTimeout.toSeconds(), Integer.MAX_VALUE);
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    /**
+     * @return single daemon thread that keeps the events in order and stops when idle
+     */
+    private static Executor newListenerExecutor() {
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    final Thread thread = new Thread(runnable, "sling-mock-session-events");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @param listener {@link HttpSessionListener}, {@link HttpSessionAttributeListener} or
+     *      {@link HttpSessionIdListener} to notify of the changes of the registered sessions
+     */
+    public void addListener(@NotNull EventListener listener) {
+        if (!(listener instanceof HttpSessionListener
+                || listener instanceof HttpSessionAttributeListener
+                || listener instanceof HttpSessionIdListener)) {
+            throw new IllegalArgumentException("Unsupported listener type: " + listener.getClass());
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NotNull EventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return a new registered session
+     */
+    public @NotNull MockJakartaHttpSession createSession() {
+        return add(new MockJakartaHttpSession());
+    }
+
+    /**
+     * Registers a session and applies the idle timeout to it.
+     * If this exceeds the maximum number of sessions the least recently used one is invalidated.
+     *
+     * @param session session to register
+     * @return the session
+     */
+    public @NotNull MockJakartaHttpSession add(@NotNull MockJakartaHttpSession session) {
+        session.setMaxInactiveInterval(idleTimeoutSeconds);
+        session.setManager(this);
+        sessions.put(session.getId(), new Registration(session));
+        fire(HttpSessionListener.class, new HttpSessionEvent(session), HttpSessionListener::sessionCreated);
+        while (sessions.size() > maxSessions) {
+            final Registration eldest = leastRecentlyUsed();
+            if (eldest == null) {
+                break;
+            }
+            if (sessions.remove(eldest.session.getId(), eldest)) {
+                eldest.session.markInvalidated();
+            }
+        }
+        return session;
+    }
+
+    private @Nullable Registration leastRecentlyUsed() {
+        Registration eldest = null;
+        for (Registration registration : sessions.values()) {
+            if (eldest == null || registration.lastUsed - eldest.lastUsed < 0) {
+                eldest = registration;
+            }
+        }
+        return eldest;
+    }
+
+    /**
+     * @param id session ID
+     * @return the registered session with this ID, or null if there is none or it is invalidated or expired
+     */
+    public @Nullable MockJakartaHttpSession getSession(@Nullable String id) {
+        if (id == null) {
+            return null;
+        }
+        final Registration registration = sessions.get(id);
+        if (registration == null) {
+            return null;
+        }
+        final MockJakartaHttpSession session = registration.session;
+        if (session.isInvalidated() || session.expireIfInactive(System.currentTimeMillis())) {
+            return null;
+        }
+        registration.lastUsed = System.nanoTime();
+        return session;
+    }
+
+    /**
+     * Gives a session a new random ID, keeping its registration.
+     *
+     * @param session session
+     * @return the new session ID
+     */
+    public @NotNull String changeSessionId(@NotNull MockJakartaHttpSession session) {
+        final String oldId;
+        final String newId;
+        synchronized (session) {
+            oldId = session.getId();
+            final Registration registration = sessions.get(oldId);
+            newId = session.changeId();
+            if (registration != null && registration.session == session && sessions.remove(oldId, registration)) {
+                sessions.put(newId, registration);
+            }
+        }
+        fire(
+                HttpSessionIdListener.class,
+                new HttpSessionEvent(session),
+                (listener, event) -> listener.sessionIdChanged(event, oldId));
+        return newId;
+    }
+
+    /**
+     * Invalidates the sessions whose idle timeout has expired, which otherwise happens
+     * when they are looked up or by the background sweep, see {@link #startSweeping(Duration)}.
+     *
+     * @return number of sessions that were invalidated
+     */
+    public int purgeExpired() {
+        return purgeExpired(System.currentTimeMillis());
+    }
+
+    int purgeExpired(long now) {
+        int expired = 0;
+        for (Registration registration : sessions.values()) {
+            final MockJakartaHttpSession session = registration.session;
+            if (!session.isInvalidated() && session.expireIfInactive(now)) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Starts invalidating the expired sessions periodically on a background thread, until
+     * {@link #stopSweeping()} is called. The sweep only unregisters the expired sessions,
+     * their invalidation including the {@link HttpSessionListener#sessionDestroyed} calls
+     * runs on the listener executor, so the sweep does not wait for the listeners.
+     *
+     * @param interval time between two sweeps
+     */
+    public synchronized void startSweeping(@NotNull Duration interval) {
+        if (interval == null || interval.toMillis() < 1) {
+            throw new IllegalArgumentException("interval must be at least one millisecond: " + interval);
+        }
+        stopSweeping();
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "sling-mock-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(
+                () -> {
+                    try {
+                        sweep(System.currentTimeMillis());
+                    } catch (RuntimeException e) {
+                        // an exception would cancel the next runs
+                        log.warn("Session sweep failed", e);
+                    }
+                },
+                interval.toMillis(),
+                interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background sweep started by {@link #startSweeping(Duration)}, if any.
+     */
+    public synchronized void stopSweeping() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Unregisters the expired sessions and hands their invalidation to the listener executor.
+     *
+     * @param now current time in milliseconds
+     * @return number of sessions that expired
+     */
+    int sweep(long now) {
+        int expired = 0;
+        for (Registration registration : sessions.values()) {
+            final MockJakartaHttpSession session = registration.session;
+            if (session.isInactive(now) && session.startInvalidation()) {
+                sessions.remove(session.getId(), registration);
+                listenerExecutor.execute(session::completeInvalidation);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return the number of registered sessions, including expired ones that have not been invalidated yet
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Called before the session becomes unusable, notifies the listeners on the calling thread.
+     */
+    void sessionInvalidated(MockJakartaHttpSession session) {
+        final Registration registration = sessions.get(session.getId());
+        if (registration != null && registration.session == session) {
+            sessions.remove(session.getId(), registration);
+        }
+        final HttpSessionEvent event = new HttpSessionEvent(session);
+        for (EventListener listener : listeners) {
+            if (listener instanceof HttpSessionListener sessionListener) {
+                notify(sessionListener, event, HttpSessionListener::sessionDestroyed);
+            }
+        }
+    }
+
+    void attributeChanged(MockJakartaHttpSession session, String name, Object oldValue, Object newValue) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (oldValue == null) {
+            fire(
+                    HttpSessionAttributeListener.class,
+                    new HttpSessionBindingEvent(session, name, newValue),
+                    HttpSessionAttributeListener::attributeAdded);
+        } else if (newValue == null) {
+            fire(
+                    HttpSessionAttributeListener.class,
+                    new HttpSessionBindingEvent(session, name, oldValue),
+                    HttpSessionAttributeListener::attributeRemoved);
+        } else {
+            // like in a servlet container the event of a replacement carries the old value
+            fire(
+                    HttpSessionAttributeListener.class,
+                    new HttpSessionBindingEvent(session, name, oldValue),
+                    HttpSessionAttributeListener::attributeReplaced);
+        }
+    }
+
+    private <L extends EventListener, E extends HttpSessionEvent> void fire(
+            Class<L> type, E event, BiConsumer<L, E> action) {
+        for (EventListener listener : listeners) {
+            if (type.isInstance(listener)) {
+                final L typed = type.cast(listener);
+                listenerExecutor.execute(() -> notify(typed, event, action));
+            }
+        }
+    }
+
+    private static <L extends EventListener, E extends HttpSessionEvent> void notify(
+            L listener, E event, BiConsumer<L, E> action) {
+        try {
+            action.accept(listener, event);
+        } catch (RuntimeException e) {
+            // a failing listener must not keep the others from being notified
+            log.warn("Session listener {} failed", listener, e);
+        }
+    }
+
+    /** A registered session with the time it was last looked up, to evict the least recently used one */
+    private static final class Registration {
+        private final MockJakartaHttpSession session;
+        private volatile long lastUsed = System.nanoTime();
+
+        Registration(MockJakartaHttpSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -18,12 +18,18 @@
  */
 package org.apache.sling.servlethelpers;
 
+import javax.servlet.MultipartConfigElement;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import javax.servlet.http.Part;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.ListResourceBundle;
 import java.util.Locale;
 import java.util.Map;
@@ -51,6 +57,7 @@ import static org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest
 public class MockSlingHttpServletRequest extends JakartaToJavaxRequestWrapper {
     private MockSlingJakartaHttpServletRequest wrappedRequest;
     private MockRequestDispatcherFactory requestDispatcherFactory;
+    private AdapterCache adapterCache;
 
     protected static final ResourceBundle EMPTY_RESOURCE_BUNDLE = new ListResourceBundle() {
         @Override
@@ -86,8 +93,17 @@ public class MockSlingHttpServletRequest extends JakartaToJavaxRequestWrapper {
         return null;
     }
 
+    /**
+     * @param sessionManager session manager, see
+     *      {@link MockSlingJakartaHttpServletRequest#setSessionManager(MockSessionManager)}
+     */
+    public void setSessionManager(MockSessionManager sessionManager) {
+        this.wrappedRequest.setSessionManager(sessionManager);
+    }
+
     public void setResource(Resource resource) {
         this.wrappedRequest.setResource(resource);
+        clearAdapterCache();
     }
 
     public void setParameterMap(Map<String, Object> parameterMap) {
@@ -155,6 +171,10 @@ public class MockSlingHttpServletRequest extends JakartaToJavaxRequestWrapper {
         this.wrappedRequest.addRequestParameter(name, value);
     }
 
+    public void addRequestParameters(String name, Collection<String> values) {
+        this.wrappedRequest.addRequestParameters(name, values);
+    }
+
     public void addRequestParameter(String name, byte[] content, String contentType) {
         this.wrappedRequest.addRequestParameter(name, content, contentType);
     }
@@ -171,6 +191,41 @@ public class MockSlingHttpServletRequest extends JakartaToJavaxRequestWrapper {
         this.wrappedRequest.setContent(content);
     }
 
+    public void setContent(InputStream content) {
+        this.wrappedRequest.setContent(content);
+    }
+
+    public void setContent(InputStream content, long length) {
+        this.wrappedRequest.setContent(content, length);
+    }
+
+    public void setContent(Path file) throws IOException {
+        this.wrappedRequest.setContent(file);
+    }
+
+    public void setContent(ByteBuffer content) {
+        this.wrappedRequest.setContent(content);
+    }
+
+    public void setMappedContent(Path file) throws IOException {
+        this.wrappedRequest.setMappedContent(file);
+    }
+
+    public void setMappedContent(Path file, long offset, long length) throws IOException {
+        this.wrappedRequest.setMappedContent(file, offset, length);
+    }
+
+    public void setMultipartConfig(MultipartConfigElement multipartConfig) {
+        this.wrappedRequest.setMultipartConfig(
+                multipartConfig == null
+                        ? null
+                        : new jakarta.servlet.MultipartConfigElement(
+                                multipartConfig.getLocation(),
+                                multipartConfig.getMaxFileSize(),
+                                multipartConfig.getMaxRequestSize(),
+                                multipartConfig.getFileSizeThreshold()));
+    }
+
     public void setRequestDispatcherFactory(MockRequestDispatcherFactory requestDispatcherFactory) {
         this.requestDispatcherFactory = requestDispatcherFactory;
     }
@@ -254,8 +309,29 @@ public class MockSlingHttpServletRequest extends JakartaToJavaxRequestWrapper {
         return this.wrappedRequest.getRequestPathInfo();
     }
 
+    /**
+     * Enables or disables caching of {@link #adaptTo(Class)} results for this request,
+     * see {@link MockSlingJakartaHttpServletRequest#setAdapterCacheEnabled(boolean)}.
+     *
+     * @param enabled true to cache adapters
+     */
+    public void setAdapterCacheEnabled(boolean enabled) {
+        this.adapterCache = enabled ? new AdapterCache() : null;
+    }
+
+    /**
+     * Drops the adapters cached since {@link #setAdapterCacheEnabled(boolean)} was called.
+     */
+    public void clearAdapterCache() {
+        if (adapterCache != null) {
+            adapterCache.clear();
+        }
+    }
+
     @Override
     public <T> T adaptTo(Class<T> type) {
-        return AdaptableUtil.adaptToWithoutCaching(this, type);
+        return adapterCache != null
+                ? adapterCache.adaptTo(this, type)
+                : AdaptableUtil.adaptToWithoutCaching(this, type);
     }
 }
@@ -35,6 +35,7 @@ import org.osgi.annotation.versioning.ConsumerType;
 @Deprecated(since = "2.0.0")
 public class MockSlingHttpServletResponse extends JakartaToJavaxResponseWrapper {
     private MockSlingJakartaHttpServletResponse wrappedResponse;
+    private AdapterCache adapterCache;
 
     public MockSlingHttpServletResponse(MockSlingJakartaHttpServletResponse wrappedResponse) {
         super(wrappedResponse);
@@ -76,8 +77,29 @@ public class MockSlingHttpServletResponse extends JakartaToJavaxResponseWrapper
         this.wrappedResponse.sendError(sc, sm);
     }
 
+    /**
+     * Enables or disables caching of {@link #adaptTo(Class)} results for this response,
+     * see {@link MockSlingJakartaHttpServletResponse#setAdapterCacheEnabled(boolean)}.
+     *
+     * @param enabled true to cache adapters
+     */
+    public void setAdapterCacheEnabled(boolean enabled) {
+        this.adapterCache = enabled ? new AdapterCache() : null;
+    }
+
+    /**
+     * Drops the adapters cached since {@link #setAdapterCacheEnabled(boolean)} was called.
+     */
+    public void clearAdapterCache() {
+        if (adapterCache != null) {
+            adapterCache.clear();
+        }
+    }
+
     @Override
     public <T> T adaptTo(Class<T> type) {
-        return AdaptableUtil.adaptToWithoutCaching(this, type);
+        return adapterCache != null
+                ? adapterCache.adaptTo(this, type)
+                : AdaptableUtil.adaptToWithoutCaching(this, type);
     }
 }
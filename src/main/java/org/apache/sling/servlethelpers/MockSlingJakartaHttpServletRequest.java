@@ -19,22 +19,27 @@
 package org.apache.sling.servlethelpers;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.StringReader;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.Principal;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListResourceBundle;
@@ -42,10 +47,11 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 import jakarta.servlet.AsyncContext;
 import jakarta.servlet.DispatcherType;
-import jakarta.servlet.ReadListener;
+import jakarta.servlet.MultipartConfigElement;
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletConnection;
 import jakarta.servlet.ServletContext;
@@ -86,12 +92,20 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
     private final ResourceResolver resourceResolver;
     private final RequestPathInfo requestPathInfo;
     private Map<String, Object> attributeMap = new HashMap<>();
-    private Map<String, MockRequestParameter[]> parameterMap = new LinkedHashMap<>();
+    private final Map<String, ParameterValues> parameterMap = new LinkedHashMap<>();
+    // read-only views of the parameters, the first one is live and the others are built lazily once per change
+    private final RequestParameterMap requestParameterMapView = new MockRequestParameterMap(new ParameterArraysView());
+    private Map<String, String[]> parameterStrings;
+    private Map<String, String[]> parameterMapView;
+    private List<RequestParameter> requestParameterListView;
     private HttpSession session;
+    private MockSessionManager sessionManager;
     private Resource resource;
     private String authType;
     private String contextPath = "";
     private String queryString;
+    // if true the query string is formatted from the parameters when it's requested
+    private boolean queryStringFromParameters;
     private String scheme = "http";
     private String serverName = "localhost";
     private int serverPort = 80;
@@ -99,10 +113,12 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
     private String pathInfo = null;
     private String method = HttpConstants.METHOD_GET;
     private final HeaderSupport headerSupport = new HeaderSupport();
-    private final CookieSupport cookieSupport = new CookieSupport();
+    private final CookieSupport cookieSupport = new CookieSupport(headerSupport);
     private String contentType;
     private String characterEncoding;
-    private byte[] content;
+    // Charset resolved for characterEncoding, null until needed
+    private Charset charset;
+    private RequestBodySource content;
     private String remoteUser;
     private String remoteAddr;
     private String remoteHost;
@@ -111,6 +127,17 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
     private boolean getInputStreamCalled;
     private boolean getReaderCalled;
     private List<Part> parts = new ArrayList<>();
+    private MultipartConfigElement multipartConfig;
+    private AdapterCache adapterCache;
+    // true once the current body has been parsed as multipart/form-data
+    private boolean multipartParsed;
+    // why the current body could not be parsed, an IOException or IllegalStateException
+    private RuntimeException multipartFailure;
+    // parts and parameters from the parsed body, dropped when the body changes
+    private final List<MultipartPart> bodyParts = new ArrayList<>();
+    private final List<MockRequestParameter> bodyParameters = new ArrayList<>();
+
+    private static final RequestBodySource EMPTY_CONTENT = RequestBodySource.of(new byte[0]);
 
     private MockJakartaRequestDispatcherFactory requestDispatcherFactory;
     private String responseContentType;
@@ -150,12 +177,109 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
 
     @Override
     public HttpSession getSession(boolean create) {
+        if (this.sessionManager != null) {
+            return getManagedSession(create);
+        }
         if (this.session == null && create) {
             this.session = newMockHttpSession();
+        } else if (this.session instanceof MockJakartaHttpSession mockSession) {
+            mockSession.access();
         }
         return this.session;
     }
 
+    private HttpSession getManagedSession(boolean create) {
+        if (this.session instanceof MockJakartaHttpSession current
+                && (current.isInvalidated() || current.expireIfInactive(System.currentTimeMillis()))) {
+            // like in a servlet container an invalidated session is replaced by a new one
+            this.session = null;
+        }
+        if (this.session == null) {
+            final MockJakartaHttpSession requested = this.sessionManager.getSession(getRequestedSessionId());
+            if (requested != null) {
+                requested.setNew(false);
+                this.session = requested;
+            } else if (create) {
+                this.session = this.sessionManager.add(newMockHttpSession());
+                return this.session;
+            }
+        }
+        if (this.session instanceof MockJakartaHttpSession mockSession) {
+            mockSession.access();
+        }
+        return this.session;
+    }
+
+    /**
+     * Makes {@link #getSession(boolean)} look up the session in the supplied manager
+     * by the requested session ID, and register the sessions it creates there.
+     *
+     * @param sessionManager session manager, or null to keep the session in this request only
+     */
+    public void setSessionManager(MockSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    public MockSessionManager getSessionManager() {
+        return this.sessionManager;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        final Cookie cookie = getCookie(MockSessionManager.SESSION_COOKIE_NAME);
+        return cookie != null ? cookie.getValue() : getSessionIdFromQueryString();
+    }
+
+    /**
+     * Reads the session ID from the query string only, as reading the parameters
+     * could parse the request body.
+     */
+    private String getSessionIdFromQueryString() {
+        final String query = getQueryString();
+        if (query == null) {
+            return null;
+        }
+        final String[] sessionId = new String[1];
+        QueryStringCodec.parse(query, (name, value) -> {
+            if (sessionId[0] == null && MockSessionManager.SESSION_PARAMETER_NAME.equals(name)) {
+                sessionId[0] = value;
+            }
+        });
+        return sessionId[0];
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return getCookie(MockSessionManager.SESSION_COOKIE_NAME) != null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return !isRequestedSessionIdFromCookie() && getSessionIdFromQueryString() != null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        final String id = getRequestedSessionId();
+        if (id == null) {
+            return false;
+        }
+        if (this.sessionManager != null) {
+            return this.sessionManager.getSession(id) != null;
+        }
+        return this.session != null
+                && id.equals(this.session.getId())
+                && !(this.session instanceof MockJakartaHttpSession mockSession && mockSession.isInvalidated());
+    }
+
+    @Override
+    public String changeSessionId() {
+        if (!(this.session instanceof MockJakartaHttpSession mockSession) || mockSession.isInvalidated()) {
+            throw new IllegalStateException("No valid mock session associated with this request.");
+        }
+        return this.sessionManager != null ? this.sessionManager.changeSessionId(mockSession) : mockSession.changeId();
+    }
+
     @Override
     public RequestPathInfo getRequestPathInfo() {
         return this.requestPathInfo;
@@ -188,78 +312,212 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
 
     public void setResource(Resource resource) {
         this.resource = resource;
+        clearAdapterCache();
     }
 
     @Override
     public String getParameter(String name) {
-        MockRequestParameter[] params = this.parameterMap.get(name);
-        if (params != null && params.length > 0) {
-            return params[0].getString();
+        ParameterValues params = parameters().get(name);
+        if (params != null && !params.isEmpty()) {
+            return params.get(0).getString();
         }
         return null;
     }
 
+    /**
+     * @return read-only map of the parameters, which is only rebuilt after parameters change.
+     *      Its arrays are copies, so changing them does not affect other callers.
+     */
     @Override
     public Map<String, String[]> getParameterMap() {
-        LinkedHashMap<String, String[]> result = new LinkedHashMap<>();
-        for (Entry<String, MockRequestParameter[]> entry : this.parameterMap.entrySet()) {
-            MockRequestParameter[] values = entry.getValue();
-            String[] resultValues = new String[values.length];
-            for (int i = 0; i < values.length; i++) {
-                resultValues[i] = values[i].getString();
+        if (parameterMapView == null) {
+            parameterMapView = new ArrayCopiesView(getParameterStrings());
+        }
+        return parameterMapView;
+    }
+
+    /** @return the string values of the parameters, which must not be modified */
+    private Map<String, String[]> getParameterStrings() {
+        if (parameterStrings == null) {
+            Map<String, String[]> result = new LinkedHashMap<>();
+            for (Entry<String, ParameterValues> entry : parameters().entrySet()) {
+                result.put(entry.getKey(), toStrings(entry.getValue()));
+            }
+            parameterStrings = result;
+        }
+        return parameterStrings;
+    }
+
+    private static String[] toStrings(ParameterValues params) {
+        if (params == null) {
+            return null; // NOPMD NOSONAR
+        }
+        String[] values = new String[params.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = params.get(i).getString();
+        }
+        return values;
+    }
+
+    /**
+     * @return the parameters, including those of a multipart body once it has been parsed.
+     *     Like in servlet containers, the parameters of a body that cannot be parsed are
+     *     left out, and {@link #getParts()} reports the failure.
+     */
+    private Map<String, ParameterValues> parameters() {
+        parseMultipartBody();
+        return this.parameterMap;
+    }
+
+    /**
+     * Parses a multipart/form-data body into parts and request parameters, the first
+     * time they are accessed. Nothing is parsed if the body has already been read
+     * through {@link #getInputStream()} or {@link #getReader()}. If parsing fails, the
+     * failure is kept until the body changes, to be reported by {@link #getParts()}.
+     */
+    private void parseMultipartBody() {
+        if (multipartParsed
+                || multipartFailure != null
+                || this.content == null
+                || getInputStreamCalled
+                || getReaderCalled) {
+            return;
+        }
+        final String boundary = MultipartParser.getBoundary(this.contentType);
+        if (boundary == null) {
+            return;
+        }
+        final MultipartConfigElement config = multipartConfig != null
+                ? multipartConfig
+                : new MultipartConfigElement(null, -1, -1, MultipartParser.DEFAULT_FILE_SIZE_THRESHOLD);
+        final Charset partCharset = characterEncoding == null ? StandardCharsets.UTF_8 : getCharset();
+        final List<MultipartPart> parsed;
+        try (InputStream in = this.content.open()) {
+            parsed = MultipartParser.parse(in, boundary, config, partCharset);
+        } catch (IOException e) {
+            multipartFailure = new UncheckedIOException(e);
+            return;
+        } catch (IllegalStateException e) {
+            multipartFailure = e;
+            return;
+        }
+        multipartParsed = true;
+        for (MultipartPart part : parsed) {
+            this.parts.add(part);
+            this.bodyParts.add(part);
+            final MockRequestParameter parameter;
+            if (part.isFormField()) {
+                parameter = new MockRequestParameter(part.getName(), part.getString(partCharset));
+                parameter.setEncoding(partCharset.name());
+            } else {
+                parameter = new MockRequestParameter(part);
             }
-            result.put(entry.getKey(), resultValues);
+            addMockRequestParameter(part.getName(), parameter);
+            this.bodyParameters.add(parameter);
         }
+    }
+
+    /**
+     * Drops the parts and parameters parsed from the body, so that it is parsed
+     * again on the next access, with the current content and content type.
+     */
+    private void bodyChanged() {
+        multipartFailure = null;
+        if (!multipartParsed) {
+            return;
+        }
+        multipartParsed = false;
+        parametersChanged();
+        for (MultipartPart part : bodyParts) {
+            this.parts.remove(part);
+            part.delete();
+        }
+        bodyParts.clear();
+        for (MockRequestParameter parameter : bodyParameters) {
+            final ParameterValues values = this.parameterMap.get(parameter.getName());
+            if (values != null && values.remove(parameter) && values.isEmpty()) {
+                this.parameterMap.remove(parameter.getName());
+            }
+        }
+        bodyParameters.clear();
+    }
 
-        return result;
+    /**
+     * Sets the size limits, file size threshold and temporary file location used
+     * when parsing a multipart/form-data body. Without it, parts larger than 1 MB
+     * are moved to the default temporary directory and there are no size limits.
+     *
+     * @param multipartConfig multipart configuration
+     */
+    public void setMultipartConfig(MultipartConfigElement multipartConfig) {
+        bodyChanged();
+        this.multipartConfig = multipartConfig;
+    }
+
+    /**
+     * Drop the parameter views, to rebuild them on their next use. Called before
+     * the parameters change.
+     */
+    private void parametersChanged() {
+        parameterStrings = null;
+        parameterMapView = null;
+        requestParameterListView = null;
+        if (queryStringFromParameters) {
+            // the query string only covers the parameters given to setParameterMap,
+            // not those added later or parsed from the body
+            queryString = formatQueryString(this.parameterMap);
+            queryStringFromParameters = false;
+        }
     }
 
     @Override
     public Enumeration<String> getParameterNames() {
-        return IteratorUtils.asEnumeration(this.parameterMap.keySet().iterator());
+        return IteratorUtils.asEnumeration(parameters().keySet().iterator());
     }
 
     @Override
     public String[] getParameterValues(String name) { // NOPMD
-        MockRequestParameter[] param = this.parameterMap.get(name);
-        if (param != null) {
-            String[] values = new String[param.length];
-            for (int i = 0; i < param.length; i++) {
-                values[i] = param[i].getString();
-            }
-            return values;
-        }
-        return null; // NOPMD NOSONAR
+        String[] values = getParameterStrings().get(name);
+        return values == null ? null : values.clone();
     }
 
     /**
+     * Replaces the request parameters. The query string is then derived from
+     * these parameters, it is only formatted when {@link #getQueryString()} is called.
+     * Parameters added later or parsed from a multipart body are not part of it.
+     *
      * @param parameterMap Map of parameters
      */
     public void setParameterMap(Map<String, Object> parameterMap) {
+        bodyChanged();
         this.parameterMap.clear();
+        parametersChanged();
         for (Map.Entry<String, Object> entry : parameterMap.entrySet()) {
             String key = entry.getKey();
             Object value = entry.getValue();
             if (value instanceof String[] array) {
-                MockRequestParameter[] values = new MockRequestParameter[array.length];
-                for (int i = 0; i < array.length; i++) {
-                    values[i] = new MockRequestParameter(key, array[i]);
+                ParameterValues values = new ParameterValues(array.length);
+                for (String v : array) {
+                    values.add(new MockRequestParameter(key, v));
                 }
                 this.parameterMap.put(key, values);
             } else if (value instanceof MockRequestParameter[] mrp) {
-                this.parameterMap.put(key, mrp);
+                ParameterValues values = new ParameterValues(mrp.length);
+                values.addAll(Arrays.asList(mrp));
+                this.parameterMap.put(key, values);
             } else if (value != null) {
                 this.addRequestParameter(key, value.toString());
             } else {
                 this.parameterMap.put(key, null);
             }
         }
-        this.queryString = formatQueryString(this.parameterMap);
+        this.queryString = null;
+        this.queryStringFromParameters = true;
     }
 
-    private static String formatQueryString(Map<String, MockRequestParameter[]> map) {
+    private static String formatQueryString(Map<String, ParameterValues> map) {
         StringBuilder querystring = new StringBuilder();
-        for (Map.Entry<String, MockRequestParameter[]> entry : map.entrySet()) {
+        for (Map.Entry<String, ParameterValues> entry : map.entrySet()) {
             if (entry.getValue() != null) {
                 formatQueryStringParameter(querystring, entry);
             }
@@ -268,16 +526,9 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
     }
 
     private static void formatQueryStringParameter(
-            StringBuilder querystring, Map.Entry<String, MockRequestParameter[]> entry) {
+            StringBuilder querystring, Map.Entry<String, ParameterValues> entry) {
         for (MockRequestParameter value : entry.getValue()) {
-            if (!querystring.isEmpty()) {
-                querystring.append('&');
-            }
-            querystring.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8));
-            querystring.append('=');
-            if (value.getString() != null) {
-                querystring.append(URLEncoder.encode(value.getString(), StandardCharsets.UTF_8));
-            }
+            QueryStringCodec.appendPair(querystring, entry.getKey(), value.getString());
         }
     }
 
@@ -310,35 +561,21 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
      */
     public void setQueryString(String queryString) {
         this.queryString = queryString;
-        parseQueryString(this.parameterMap, this.queryString);
-    }
-
-    private void parseQueryString(Map<String, MockRequestParameter[]> map, String query) {
-        Map<String, List<String>> queryPairs = new LinkedHashMap<>();
-        String[] pairs = query.split("&");
-        for (String pair : pairs) {
-            int idx = pair.indexOf('=');
-            String key = idx > 0 ? URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8) : pair;
-            queryPairs.computeIfAbsent(key, k -> new ArrayList<>());
-            String value = idx > 0 && pair.length() > idx + 1
-                    ? URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8)
-                    : null;
-            queryPairs.get(key).add(value);
-        }
-        map.clear();
-        for (Map.Entry<String, List<String>> entry : queryPairs.entrySet()) {
-            List<String> valueList = entry.getValue();
-            int numEntries = valueList.size();
-            MockRequestParameter[] values = new MockRequestParameter[numEntries];
-            for (int i = 0; i < numEntries; i++) {
-                values[i] = new MockRequestParameter(entry.getKey(), valueList.get(i));
-            }
-            map.put(entry.getKey(), values);
+        this.queryStringFromParameters = false;
+        bodyChanged();
+        this.parameterMap.clear();
+        parametersChanged();
+        if (queryString != null) {
+            QueryStringCodec.parse(
+                    queryString, (name, value) -> parameterValues(name).add(new MockRequestParameter(name, value)));
         }
     }
 
     @Override
     public String getQueryString() {
+        if (this.queryStringFromParameters && this.queryString == null) {
+            this.queryString = formatQueryString(this.parameterMap);
+        }
         return this.queryString;
     }
 
@@ -416,6 +653,7 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
      */
     public void addHeader(String name, String value) {
         headerSupport.addHeader(name, value);
+        cookieSupport.headerChanged(name);
     }
 
     /**
@@ -426,6 +664,7 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
      */
     public void addIntHeader(String name, int value) {
         headerSupport.addIntHeader(name, value);
+        cookieSupport.headerChanged(name);
     }
 
     /**
@@ -436,6 +675,7 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
      */
     public void addDateHeader(String name, long date) {
         headerSupport.addDateHeader(name, date);
+        cookieSupport.headerChanged(name);
     }
 
     /**
@@ -446,6 +686,7 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
      */
     public void setHeader(String name, String value) {
         headerSupport.setHeader(name, value);
+        cookieSupport.headerChanged(name);
     }
 
     /**
@@ -456,6 +697,7 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
      */
     public void setIntHeader(String name, int value) {
         headerSupport.setIntHeader(name, value);
+        cookieSupport.headerChanged(name);
     }
 
     /**
@@ -466,6 +708,7 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
      */
     public void setDateHeader(String name, long date) {
         headerSupport.setDateHeader(name, date);
+        cookieSupport.headerChanged(name);
     }
 
     @Override
@@ -499,34 +742,39 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
 
     @Override
     public RequestParameter getRequestParameter(String name) {
-        MockRequestParameter[] params = this.parameterMap.get(name);
-        if (params != null && params.length > 0) {
-            return params[0];
+        ParameterValues params = parameters().get(name);
+        if (params != null && !params.isEmpty()) {
+            return params.get(0);
         }
         return null;
     }
 
+    /**
+     * @return read-only, live view of the request parameters
+     */
     @Override
     public RequestParameterMap getRequestParameterMap() {
-        MockRequestParameterMap map = new MockRequestParameterMap();
-        for (Map.Entry<String, String[]> entry : getParameterMap().entrySet()) {
-            map.put(entry.getKey(), getRequestParameters(entry.getKey()));
-        }
-        return map;
+        return requestParameterMapView;
     }
 
     @Override
     public RequestParameter[] getRequestParameters(String name) {
-        return this.parameterMap.get(name);
+        ParameterValues params = parameters().get(name);
+        return params == null ? null : params.toParameterArray();
     }
 
     // part of Sling API 2.7
     public List<RequestParameter> getRequestParameterList() {
-        List<RequestParameter> params = new ArrayList<>();
-        for (RequestParameter[] requestParameters : getRequestParameterMap().values()) {
-            params.addAll(Arrays.asList(requestParameters));
+        if (requestParameterListView == null) {
+            List<RequestParameter> params = new ArrayList<>();
+            for (ParameterValues requestParameters : parameters().values()) {
+                if (requestParameters != null) {
+                    params.addAll(requestParameters);
+                }
+            }
+            requestParameterListView = Collections.unmodifiableList(params);
         }
-        return params;
+        return requestParameterListView;
     }
 
     /**
@@ -567,13 +815,161 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
         addMockRequestParameter(name, mockRequestParameter);
     }
 
+    /**
+     * Add request parameters that consist of simple name/value pairs, all with
+     * the same name. This emulates a form with repeated fields.
+     *
+     * @param name   field name
+     * @param values field values
+     */
+    public void addRequestParameters(String name, Collection<String> values) {
+        ParameterValues params = parameterValues(name);
+        params.ensureCapacity(params.size() + values.size());
+        for (String value : values) {
+            params.add(new MockRequestParameter(name, value));
+        }
+    }
+
     private void addMockRequestParameter(String name, MockRequestParameter mockRequestParameter) {
-        if (this.parameterMap.containsKey(name)) {
-            List<MockRequestParameter> list = new ArrayList<>(Arrays.asList(this.parameterMap.get(name)));
-            list.add(mockRequestParameter);
-            this.parameterMap.put(name, list.toArray(new MockRequestParameter[0]));
-        } else {
-            this.parameterMap.put(name, new MockRequestParameter[] {mockRequestParameter});
+        parameterValues(name).add(mockRequestParameter);
+    }
+
+    /** Get the values of the supplied parameter, to be modified */
+    private ParameterValues parameterValues(String name) {
+        parametersChanged();
+        ParameterValues params = this.parameterMap.get(name);
+        if (params == null) {
+            params = new ParameterValues(1);
+            this.parameterMap.put(name, params);
+        }
+        return params;
+    }
+
+    /**
+     * The values of a parameter, which can grow without copying them.
+     */
+    private static final class ParameterValues extends ArrayList<MockRequestParameter> {
+        private static final long serialVersionUID = 1L;
+
+        ParameterValues(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        /** @return a new array of the values, which the caller is free to modify */
+        MockRequestParameter[] toParameterArray() {
+            return super.toArray(new MockRequestParameter[0]);
+        }
+    }
+
+    /** Read-only view of string arrays, which hands out copies of the arrays */
+    private static final class ArrayCopiesView extends AbstractMap<String, String[]> {
+        private final Map<String, String[]> map;
+        private final Set<Entry<String, String[]>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String[]>> iterator() {
+                final Iterator<Entry<String, String[]>> it = map.entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String[]> next() {
+                        final Entry<String, String[]> e = it.next();
+                        return new SimpleImmutableEntry<>(e.getKey(), copy(e.getValue()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+        };
+
+        ArrayCopiesView(Map<String, String[]> map) {
+            this.map = map;
+        }
+
+        private static String[] copy(String[] values) {
+            return values == null ? null : values.clone();
+        }
+
+        @Override
+        public String[] get(Object key) {
+            return copy(map.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return Collections.unmodifiableSet(map.keySet());
+        }
+
+        @Override
+        public Set<Entry<String, String[]>> entrySet() {
+            return entries;
+        }
+    }
+
+    /** Read-only, live view of the parameters as arrays, which hands out new arrays */
+    private final class ParameterArraysView extends AbstractMap<String, RequestParameter[]> {
+        private final Set<Entry<String, RequestParameter[]>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, RequestParameter[]>> iterator() {
+                final Iterator<Entry<String, ParameterValues>> it =
+                        parameters().entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, RequestParameter[]> next() {
+                        final Entry<String, ParameterValues> e = it.next();
+                        return new SimpleImmutableEntry<>(
+                                e.getKey(),
+                                e.getValue() == null ? null : e.getValue().toParameterArray());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return parameters().size();
+            }
+        };
+
+        @Override
+        public RequestParameter[] get(Object key) {
+            ParameterValues params = parameters().get(key);
+            return params == null ? null : params.toParameterArray();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return parameters().containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return parameters().size();
+        }
+
+        @Override
+        public Set<Entry<String, RequestParameter[]>> entrySet() {
+            return entries;
         }
     }
 
@@ -585,6 +981,7 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
     @Override
     public void setCharacterEncoding(String charset) {
         this.characterEncoding = charset;
+        this.charset = null;
     }
 
     @Override
@@ -598,11 +995,28 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
     }
 
     public void setContentType(String type) {
+        bodyChanged();
         this.contentType = type;
         if (Strings.CS.contains(this.contentType, CHARSET_SEPARATOR)) {
             this.characterEncoding = StringUtils.substringAfter(this.contentType, CHARSET_SEPARATOR);
             this.contentType = StringUtils.substringBefore(this.contentType, CHARSET_SEPARATOR);
+            this.charset = null;
+        }
+    }
+
+    /**
+     * @return the Charset for the character encoding, or the default one if
+     *      the encoding is not set or not supported
+     */
+    private Charset getCharset() {
+        if (charset == null) {
+            try {
+                charset = characterEncoding == null ? Charset.defaultCharset() : Charset.forName(characterEncoding);
+            } catch (IllegalArgumentException e) {
+                charset = Charset.defaultCharset();
+            }
         }
+        return charset;
     }
 
     @Override
@@ -611,42 +1025,105 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
             throw new IllegalStateException();
         }
         getInputStreamCalled = true;
-        return new ServletInputStream() {
-            private final InputStream is =
-                    content == null ? new ByteArrayInputStream(new byte[0]) : new ByteArrayInputStream(content);
+        try {
+            return (content == null ? EMPTY_CONTENT : content).newServletInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            @Override
-            public int read() throws IOException {
-                return is.read();
-            }
+    /**
+     * @return the body length, or -1 if it is unknown or larger than {@link Integer#MAX_VALUE}
+     */
+    @Override
+    public int getContentLength() {
+        final long length = getContentLengthLong();
+        return length > Integer.MAX_VALUE ? -1 : (int) length;
+    }
 
-            @Override
-            public boolean isReady() {
-                return true;
-            }
+    /**
+     * @return the body length, or -1 if it is unknown
+     */
+    @Override
+    public long getContentLengthLong() {
+        return content == null ? 0 : content.length();
+    }
 
-            @Override
-            public boolean isFinished() {
-                throw new UnsupportedOperationException();
-            }
+    public void setContent(byte[] content) {
+        bodyChanged();
+        this.content = content == null ? null : RequestBodySource.of(content);
+    }
 
-            @Override
-            public void setReadListener(ReadListener readListener) {
-                throw new UnsupportedOperationException();
-            }
-        };
+    /**
+     * Use the supplied stream as the request body, without copying it. The stream
+     * can only be read once, and it is not closed by this request.
+     *
+     * @param content body content
+     */
+    public void setContent(InputStream content) {
+        setContent(content, RequestBodySource.UNKNOWN_LENGTH);
     }
 
-    @Override
-    public int getContentLength() {
-        if (content == null) {
-            return 0;
-        }
-        return content.length;
+    /**
+     * Use the supplied stream as the request body, without copying it. The stream
+     * can only be read once, and it is not closed by this request.
+     *
+     * @param content body content
+     * @param length number of bytes that the stream provides, or -1 if unknown
+     */
+    public void setContent(InputStream content, long length) {
+        bodyChanged();
+        this.content = content == null ? null : RequestBodySource.of(content, length);
     }
 
-    public void setContent(byte[] content) {
-        this.content = content;
+    /**
+     * Use the content of the supplied file as the request body. The file is read
+     * each time {@link #getInputStream()} is called, it is not loaded in memory.
+     *
+     * @param file body content
+     * @throws IOException if the file size cannot be read
+     */
+    public void setContent(Path file) throws IOException {
+        bodyChanged();
+        this.content = file == null ? null : RequestBodySource.of(file);
+    }
+
+    /**
+     * Use the memory-mapped content of the supplied file as the request body,
+     * which avoids copying it to the heap and supports bodies larger than 2 GB.
+     * The file must not be modified while the request is in use.
+     *
+     * @param file body content
+     * @throws IOException if the file cannot be mapped
+     */
+    public void setMappedContent(Path file) throws IOException {
+        setMappedContent(file, 0, RequestBodySource.UNKNOWN_LENGTH);
+    }
+
+    /**
+     * Use a memory-mapped region of the supplied file as the request body,
+     * see {@link #setMappedContent(Path)}.
+     *
+     * @param file body content
+     * @param offset start of the region in the file
+     * @param length length of the region, or -1 for the rest of the file
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if the region is not within the file
+     */
+    public void setMappedContent(Path file, long offset, long length) throws IOException {
+        bodyChanged();
+        this.content = RequestBodySource.ofMapped(file, offset, length);
+    }
+
+    /**
+     * Use the remaining content of the supplied buffer as the request body, without
+     * copying it. The buffer's position is not modified by reading the body.
+     *
+     * @param content body content
+     */
+    public void setContent(ByteBuffer content) {
+        bodyChanged();
+        this.content = content == null ? null : RequestBodySource.of(content);
     }
 
     @Override
@@ -811,9 +1288,34 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
         this.authType = authType;
     }
 
+    /**
+     * Enables or disables caching of {@link #adaptTo(Class)} results for this request.
+     * It is disabled by default, so that each call asks the adapter manager again.
+     * Once enabled, non-null results are cached by target type. They are dropped when
+     * a different AdapterManager is registered, when {@link #setResource(Resource)} is called, when {@link #clearAdapterCache()} is
+     * called or when caching is disabled.
+     *
+     * @param enabled true to cache adapters
+     */
+    public void setAdapterCacheEnabled(boolean enabled) {
+        this.adapterCache = enabled ? new AdapterCache() : null;
+    }
+
+    /**
+     * Drops the adapters cached since {@link #setAdapterCacheEnabled(boolean)} was called,
+     * for example after changing state that they depend on.
+     */
+    public void clearAdapterCache() {
+        if (adapterCache != null) {
+            adapterCache.clear();
+        }
+    }
+
     @Override
     public <T> T adaptTo(Class<T> type) {
-        return AdaptableUtil.adaptToWithoutCaching(this, type);
+        return adapterCache != null
+                ? adapterCache.adaptTo(this, type)
+                : AdaptableUtil.adaptToWithoutCaching(this, type);
     }
 
     @Override
@@ -838,19 +1340,19 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
         getReaderCalled = true;
         if (this.content == null) {
             return new BufferedReader(new StringReader(""));
-        } else {
-            String readerContent;
-            try {
-                if (characterEncoding == null) {
-                    readerContent = new String(this.content, Charset.defaultCharset());
-                } else {
-                    readerContent = new String(this.content, characterEncoding);
-                }
-            } catch (UnsupportedEncodingException e) {
-                readerContent = new String(this.content, Charset.defaultCharset());
-            }
-            return new BufferedReader(new StringReader(readerContent));
         }
+        final InputStream in;
+        try {
+            in = this.content.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // decodes incrementally, replacing invalid input like the String constructors do
+        final CharsetDecoder decoder = getCharset()
+                .newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return new BufferedReader(new InputStreamReader(in, decoder));
     }
 
     @Override
@@ -863,14 +1365,29 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
         this.parts.add(part);
     }
 
+    /**
+     * @return the parts added with {@link #addPart(Part)}, followed by those of a
+     *      multipart/form-data body
+     * @throws IllegalStateException if the body exceeds the limits set with
+     *      {@link #setMultipartConfig(MultipartConfigElement)}
+     */
     @Override
     public Collection<Part> getParts() {
+        parseMultipartBody();
+        if (multipartFailure instanceof UncheckedIOException e) {
+            throw new UncheckedIOException(e.getMessage(), e.getCause());
+        } else if (multipartFailure != null) {
+            throw new IllegalStateException(multipartFailure.getMessage(), multipartFailure);
+        }
         return parts;
     }
 
     @Override
     public Part getPart(String name) {
-        return parts.stream().filter(p -> p.getName().equals(name)).findFirst().orElse(null);
+        return getParts().stream()
+                .filter(p -> p.getName().equals(name))
+                .findFirst()
+                .orElse(null);
     }
 
     @Override
@@ -900,26 +1417,6 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
         throw new UnsupportedOperationException();
     }
 
-    @Override
-    public String getRequestedSessionId() {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public boolean isRequestedSessionIdFromCookie() {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public boolean isRequestedSessionIdFromURL() {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public boolean isRequestedSessionIdValid() {
-        throw new UnsupportedOperationException();
-    }
-
     @Override
     public boolean isUserInRole(String role) {
         throw new UnsupportedOperationException();
@@ -1000,21 +1497,11 @@ public class MockSlingJakartaHttpServletRequest extends SlingAdaptable implement
         throw new UnsupportedOperationException();
     }
 
-    @Override
-    public String changeSessionId() {
-        throw new UnsupportedOperationException();
-    }
-
     @Override
     public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws IOException, ServletException {
         throw new UnsupportedOperationException();
     }
 
-    @Override
-    public long getContentLengthLong() {
-        throw new UnsupportedOperationException();
-    }
-
     @Override
     public String getRequestId() {
         throw new UnsupportedOperationException();
@@ -19,7 +19,10 @@
 package org.apache.sling.servlethelpers;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Locale;
 
@@ -51,6 +54,7 @@ public class MockSlingJakartaHttpServletResponse extends SlingAdaptable implemen
     private final HeaderSupport headerSupport = new HeaderSupport();
     private final ResponseBodySupport bodySupport = new ResponseBodySupport();
     private final CookieSupport cookieSupport = new CookieSupport();
+    private AdapterCache adapterCache;
 
     @Override
     public String getContentType() {
@@ -216,12 +220,13 @@ public class MockSlingJakartaHttpServletResponse extends SlingAdaptable implemen
 
     @Override
     public void flushBuffer() {
+        bodySupport.flush();
         isCommitted = true;
     }
 
     @Override
     public boolean isCommitted() {
-        return isCommitted;
+        return isCommitted || bodySupport.isCommitted();
     }
 
     public byte[] getOutput() {
@@ -232,9 +237,52 @@ public class MockSlingJakartaHttpServletResponse extends SlingAdaptable implemen
         return bodySupport.getOutputAsString(getCharacterEncoding());
     }
 
+    /**
+     * Get the response body without copying it.
+     * @return Stream over the content written so far
+     */
+    public InputStream getOutputAsStream() {
+        return bodySupport.getOutputAsStream();
+    }
+
+    /**
+     * Get the response body without copying it.
+     * @return Read-only buffers holding the content written so far, in order
+     */
+    public ByteBuffer[] getOutputAsByteBuffers() {
+        return bodySupport.getOutputAsByteBuffers();
+    }
+
+    /**
+     * @return Number of bytes written to the response body so far
+     */
+    public long getOutputLength() {
+        return bodySupport.getOutputLength();
+    }
+
+    /**
+     * Write the response body directly to the supplied stream instead of buffering it.
+     * The response is committed as soon as content has been written to that stream,
+     * and {@link #getOutput()} only returns what was written before this was called.
+     * @param target Stream that receives the body, null to buffer it again
+     */
+    public void setOutputTarget(OutputStream target) {
+        bodySupport.setTarget(target);
+    }
+
+    /**
+     * Move the response body to a temporary file once it grows past the supplied size.
+     * The temporary file is deleted when the response is reset or garbage collected.
+     * @param threshold Size in bytes, a negative value keeps the body in memory (default)
+     */
+    public void setOutputSpillThreshold(long threshold) {
+        bodySupport.setSpillThreshold(threshold);
+    }
+
     @Override
     public void addCookie(Cookie cookie) {
         cookieSupport.addCookie(cookie);
+        headerSupport.addHeader("Set-Cookie", CookieCodec.formatSetCookie(cookie, System.currentTimeMillis()));
     }
 
     /**
@@ -271,9 +319,34 @@ public class MockSlingJakartaHttpServletResponse extends SlingAdaptable implemen
         return statusMessage;
     }
 
+    /**
+     * Enables or disables caching of {@link #adaptTo(Class)} results for this response.
+     * It is disabled by default, so that each call asks the adapter manager again.
+     * Once enabled, non-null results are cached by target type. They are dropped when
+     * a different AdapterManager is registered, when {@link #clearAdapterCache()} is
+     * called or when caching is disabled.
+     *
+     * @param enabled true to cache adapters
+     */
+    public void setAdapterCacheEnabled(boolean enabled) {
+        this.adapterCache = enabled ? new AdapterCache() : null;
+    }
+
+    /**
+     * Drops the adapters cached since {@link #setAdapterCacheEnabled(boolean)} was called,
+     * for example after changing state that they depend on.
+     */
+    public void clearAdapterCache() {
+        if (adapterCache != null) {
+            adapterCache.clear();
+        }
+    }
+
     @Override
     public <T> T adaptTo(Class<T> type) {
-        return AdaptableUtil.adaptToWithoutCaching(this, type);
+        return adapterCache != null
+                ? adapterCache.adaptTo(this, type)
+                : AdaptableUtil.adaptToWithoutCaching(this, type);
     }
 
     // --- unsupported operations ---
@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import jakarta.servlet.MultipartConfigElement;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Streaming parser for multipart/form-data request bodies, as defined by RFC 7578.
+ * The body is read once through a fixed size buffer and the content of each part is
+ * copied to its own {@link ResponseBodyBuffer}, which keeps small parts in memory and
+ * moves larger ones to temporary files.
+ */
+final class MultipartParser {
+
+    /** File size threshold used when no multipart configuration is set */
+    static final int DEFAULT_FILE_SIZE_THRESHOLD = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final String MULTIPART_FORM_DATA = "multipart/form-data";
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buf;
+    private int head;
+    private int tail;
+    private final Charset charset;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+    private final int fileSizeThreshold;
+    private final Path location;
+    private long bytesRead;
+
+    private MultipartParser(InputStream in, String boundary, MultipartConfigElement config, Charset charset) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buf = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+        this.charset = charset;
+        this.maxFileSize = config.getMaxFileSize();
+        this.maxRequestSize = config.getMaxRequestSize();
+        this.fileSizeThreshold = config.getFileSizeThreshold();
+        this.location = StringUtils.isEmpty(config.getLocation()) ? null : Paths.get(config.getLocation());
+    }
+
+    /**
+     * @param contentType request content type
+     * @return the multipart boundary, or null if the content type is not multipart/form-data
+     */
+    static String getBoundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith(MULTIPART_FORM_DATA)) {
+            return null;
+        }
+        return StringUtils.defaultIfEmpty(parseHeaderParameters(contentType).get("boundary"), null);
+    }
+
+    /**
+     * Reads all parts of the supplied body. Their content is released if parsing fails.
+     *
+     * @param in body content
+     * @param boundary multipart boundary
+     * @param config size limits, threshold and location for temporary files
+     * @param charset encoding of the part headers
+     * @return the parts, in body order
+     * @throws IOException if the body is malformed or cannot be read
+     * @throws IllegalStateException if the body or a part exceeds the configured maximum size
+     */
+    static List<MultipartPart> parse(InputStream in, String boundary, MultipartConfigElement config, Charset charset)
+            throws IOException {
+        return new MultipartParser(in, boundary, config, charset).parseParts();
+    }
+
+    private List<MultipartPart> parseParts() throws IOException {
+        final List<MultipartPart> parts = new ArrayList<>();
+        try {
+            // the delimiter includes the line break that precedes it, which the first boundary does not have
+            System.arraycopy(CRLF, 0, buf, 0, CRLF.length);
+            tail = CRLF.length;
+            readBody(OutputStream.nullOutputStream(), -1, null);
+            while (!readDelimiterSuffix()) {
+                final HeaderSupport headers = readHeaders();
+                final Map<String, String> disposition = parseHeaderParameters(headers.getHeader("Content-Disposition"));
+                final String name = disposition.get("name");
+                final ResponseBodyBuffer content = new ResponseBodyBuffer(fileSizeThreshold, location);
+                final MultipartPart part =
+                        new MultipartPart(name, disposition.get("filename"), headers, content, location);
+                parts.add(part);
+                readBody(content, maxFileSize, name);
+                if (name == null) {
+                    // not a form-data part, RFC 7578 requires a name
+                    parts.remove(parts.size() - 1);
+                    part.delete();
+                }
+            }
+            return parts;
+        } catch (IOException | RuntimeException e) {
+            for (MultipartPart part : parts) {
+                part.delete();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the body of the current part to the supplied stream, up to the next delimiter.
+     *
+     * @param limit maximum number of bytes, negative for no limit
+     * @param name name of the part, for error messages
+     */
+    private void readBody(OutputStream out, long limit, String name) throws IOException {
+        long written = 0;
+        while (true) {
+            final int index = indexOf(delimiter, head, tail);
+            // a partial delimiter at the end of the buffer stays there until more is read
+            final int end = index >= 0 ? index : Math.max(head, tail - delimiter.length + 1);
+            if (end > head) {
+                written += end - head;
+                if (limit >= 0 && written > limit) {
+                    throw new IllegalStateException(
+                            "Multipart part " + name + " exceeds the maximum file size of " + limit + " bytes");
+                }
+                out.write(buf, head, end - head);
+                head = end;
+            }
+            if (index >= 0) {
+                head += delimiter.length;
+                return;
+            }
+            if (!fill()) {
+                throw new IOException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    /** @return true if the delimiter just read is the close delimiter */
+    private boolean readDelimiterSuffix() throws IOException {
+        while (require(2)) {
+            final byte b = buf[head];
+            if (b == '-' && buf[head + 1] == '-') {
+                // the epilogue, if any, is ignored
+                return true;
+            } else if (b == '\r' && buf[head + 1] == '\n') {
+                head += 2;
+                return false;
+            } else if (b == ' ' || b == '\t') {
+                // transport padding
+                head++;
+            } else {
+                break;
+            }
+        }
+        throw new IOException("Malformed multipart body, invalid boundary line");
+    }
+
+    private HeaderSupport readHeaders() throws IOException {
+        final HeaderSupport headers = new HeaderSupport();
+        while (true) {
+            final int eol = indexOf(CRLF, head, tail);
+            if (eol < 0) {
+                if (head == 0 && tail == buf.length) {
+                    throw new IOException("Multipart part headers exceed " + buf.length + " bytes");
+                }
+                if (!fill()) {
+                    throw new IOException("Unexpected end of multipart body");
+                }
+                continue;
+            }
+            final String line = new String(buf, head, eol - head, charset);
+            head = eol + CRLF.length;
+            if (line.isEmpty()) {
+                return headers;
+            }
+            final int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.addHeader(
+                        line.substring(0, colon).trim(),
+                        line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    /** @return false if the body ends before the supplied number of bytes is buffered */
+    private boolean require(int count) throws IOException {
+        while (tail - head < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Reads more of the body into the buffer, after moving unread bytes to its start */
+    private boolean fill() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buf, head, buf, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        if (tail == buf.length) {
+            return false;
+        }
+        final int n = in.read(buf, tail, buf.length - tail);
+        if (n < 0) {
+            return false;
+        }
+        tail += n;
+        bytesRead += n;
+        if (maxRequestSize >= 0 && bytesRead > maxRequestSize) {
+            throw new IllegalStateException(
+                    "Multipart body exceeds the maximum request size of " + maxRequestSize + " bytes");
+        }
+        return true;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        final byte first = pattern[0];
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            if (buf[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (buf[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the parameters of a header value like
+     * {@code form-data; name="field"; filename="a.txt"}.
+     *
+     * @return the parameters by lower case name, the first value wins
+     */
+    static Map<String, String> parseHeaderParameters(String header) {
+        final Map<String, String> result = new HashMap<>();
+        if (header == null) {
+            return result;
+        }
+        final int length = header.length();
+        int pos = header.indexOf(';');
+        while (pos >= 0 && pos < length) {
+            pos++;
+            final int nameStart = pos;
+            while (pos < length && header.charAt(pos) != '=' && header.charAt(pos) != ';') {
+                pos++;
+            }
+            final String name = header.substring(nameStart, pos).trim().toLowerCase(Locale.ROOT);
+            String value = null;
+            if (pos < length && header.charAt(pos) == '=') {
+                pos++;
+                while (pos < length && Character.isWhitespace(header.charAt(pos))) {
+                    pos++;
+                }
+                if (pos < length && header.charAt(pos) == '"') {
+                    final StringBuilder sb = new StringBuilder();
+                    pos++;
+                    while (pos < length && header.charAt(pos) != '"') {
+                        char c = header.charAt(pos++);
+                        // only quotes and backslashes are escaped, browsers send Windows paths as they are
+                        if (c == '\\' && pos < length && (header.charAt(pos) == '"' || header.charAt(pos) == '\\')) {
+                            c = header.charAt(pos++);
+                        }
+                        sb.append(c);
+                    }
+                    value = sb.toString();
+                } else {
+                    final int valueStart = pos;
+                    while (pos < length && header.charAt(pos) != ';') {
+                        pos++;
+                    }
+                    value = header.substring(valueStart, pos).trim();
+                }
+            }
+            if (!name.isEmpty()) {
+                result.putIfAbsent(name, value);
+            }
+            pos = header.indexOf(';', pos);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+
+import jakarta.servlet.http.Part;
+
+/**
+ * Part read from a multipart request body by the {@link MultipartParser}. Its content
+ * is held in memory, or in a temporary file once it exceeds the file size threshold.
+ */
+final class MultipartPart implements Part {
+
+    private final String name;
+    private final String submittedFileName;
+    private final HeaderSupport headers;
+    private final ResponseBodyBuffer content;
+    private final Path location;
+
+    MultipartPart(
+            String name, String submittedFileName, HeaderSupport headers, ResponseBodyBuffer content, Path location) {
+        this.name = name;
+        this.submittedFileName = submittedFileName;
+        this.headers = headers;
+        this.content = content;
+        this.location = location;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return content.toInputStream();
+    }
+
+    @Override
+    public String getContentType() {
+        return headers.getHeader("Content-Type");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getSubmittedFileName() {
+        return submittedFileName;
+    }
+
+    @Override
+    public long getSize() {
+        return content.size();
+    }
+
+    /**
+     * @return true if this part is a form field rather than a file upload
+     */
+    boolean isFormField() {
+        return submittedFileName == null;
+    }
+
+    /**
+     * @return true if the content has been moved to a temporary file
+     */
+    boolean isSpilled() {
+        return content.isSpilled();
+    }
+
+    /**
+     * @return the content decoded with the supplied charset
+     */
+    String getString(Charset charset) {
+        return content.toString(charset);
+    }
+
+    /**
+     * Writes the content to the supplied file, relative to the multipart configuration
+     * location unless it is absolute.
+     */
+    @Override
+    public void write(String fileName) throws IOException {
+        final Path target = location == null ? Paths.get(fileName) : location.resolve(fileName);
+        try (InputStream in = getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes the temporary file holding the content, if any.
+     */
+    @Override
+    public void delete() {
+        content.release();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getHeader(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        return headers.getHeaders(name);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return headers.getHeaderNames();
+    }
+}
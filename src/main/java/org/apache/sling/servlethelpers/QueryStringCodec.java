@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * Decodes and encodes {@code application/x-www-form-urlencoded} query strings
+ * in a single pass, with the same results as {@link java.net.URLDecoder} and
+ * {@link java.net.URLEncoder} using UTF-8. Names and values that do not need
+ * any decoding or encoding are used as is, without copying them.
+ */
+final class QueryStringCodec {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private QueryStringCodec() {
+        // static methods only
+    }
+
+    /**
+     * Parse the supplied query string, calling the consumer for each name/value pair in order.
+     * The value is null for names that have no value or an empty one, empty pairs are ignored.
+     *
+     * @throws IllegalArgumentException if the query string contains an invalid escape sequence
+     */
+    static void parse(CharSequence query, BiConsumer<String, String> consumer) {
+        final int length = query.length();
+        int start = 0;
+        while (start <= length) {
+            int end = start;
+            int equals = -1;
+            while (end < length && query.charAt(end) != '&') {
+                if (equals < 0 && query.charAt(end) == '=') {
+                    equals = end;
+                }
+                end++;
+            }
+            if (end > start) {
+                if (equals > start) {
+                    final String value = equals + 1 < end ? decode(query, equals + 1, end) : null;
+                    consumer.accept(decode(query, start, equals), value);
+                } else {
+                    consumer.accept(decode(query, start, end), null);
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * @return the decoded characters between start (inclusive) and end (exclusive)
+     */
+    static String decode(CharSequence s, int start, int end) {
+        int i = start;
+        while (i < end && s.charAt(i) != '%' && s.charAt(i) != '+') {
+            i++;
+        }
+        if (i == end) {
+            // nothing to decode
+            return s.subSequence(start, end).toString();
+        }
+        final StringBuilder sb = new StringBuilder(end - start);
+        sb.append(s, start, i);
+        byte[] bytes = null;
+        while (i < end) {
+            final char c = s.charAt(i);
+            if (c == '+') {
+                sb.append(' ');
+                i++;
+            } else if (c == '%') {
+                // consecutive escapes form a sequence of UTF-8 bytes
+                if (bytes == null) {
+                    bytes = new byte[(end - i) / 3];
+                }
+                int count = 0;
+                while (i < end && s.charAt(i) == '%') {
+                    if (i + 2 >= end) {
+                        throw new IllegalArgumentException("Incomplete escape sequence in query string");
+                    }
+                    final int hi = Character.digit(s.charAt(i + 1), 16);
+                    final int lo = Character.digit(s.charAt(i + 2), 16);
+                    if (hi < 0 || lo < 0) {
+                        throw new IllegalArgumentException("Invalid escape sequence in query string");
+                    }
+                    bytes[count++] = (byte) ((hi << 4) + lo);
+                    i += 3;
+                }
+                sb.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Append the encoded form of the supplied name and value to the query string.
+     *
+     * @param value null is encoded as an empty value
+     */
+    static void appendPair(StringBuilder querystring, String name, String value) {
+        if (!querystring.isEmpty()) {
+            querystring.append('&');
+        }
+        encode(querystring, name);
+        querystring.append('=');
+        if (value != null) {
+            encode(querystring, value);
+        }
+    }
+
+    /**
+     * Append the encoded form of the supplied characters
+     */
+    static void encode(StringBuilder sb, CharSequence s) {
+        final int length = s.length();
+        int i = 0;
+        while (i < length && isUnreserved(s.charAt(i))) {
+            i++;
+        }
+        // unreserved prefix is copied as is, which is the whole value in most cases
+        sb.append(s, 0, i);
+        while (i < length) {
+            final char c = s.charAt(i);
+            if (isUnreserved(c)) {
+                sb.append(c);
+                i++;
+            } else if (c == ' ') {
+                sb.append('+');
+                i++;
+            } else if (c < 0x80) {
+                appendEscaped(sb, c);
+                i++;
+            } else {
+                // encode the run of non-ASCII characters at once, to keep surrogate pairs together
+                int end = i + 1;
+                while (end < length && s.charAt(end) >= 0x80) {
+                    end++;
+                }
+                for (byte b : s.subSequence(i, end).toString().getBytes(StandardCharsets.UTF_8)) {
+                    appendEscaped(sb, b & 0xFF);
+                }
+                i = end;
+            }
+        }
+    }
+
+    private static void appendEscaped(StringBuilder sb, int b) {
+        sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0x0F]);
+    }
+
+    /** Characters that {@link java.net.URLEncoder} does not encode */
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9')
+                || c == '.'
+                || c == '-'
+                || c == '*'
+                || c == '_';
+    }
+}
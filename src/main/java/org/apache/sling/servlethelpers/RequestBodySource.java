@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+
+/**
+ * Source of a mock request body, which can be a byte array, an InputStream,
+ * a file, a memory-mapped file region or a ByteBuffer, so that large bodies
+ * do not need to be copied to the heap.
+ */
+abstract class RequestBodySource {
+
+    /** Length of a body that is not known in advance */
+    static final long UNKNOWN_LENGTH = -1;
+
+    /** Largest file region that is mapped at once */
+    private static final long MAX_MAPPED_REGION = Integer.MAX_VALUE;
+
+    private final long length;
+
+    private RequestBodySource(long length) {
+        this.length = length;
+    }
+
+    static RequestBodySource of(byte[] content) {
+        return new BytesSource(content);
+    }
+
+    /**
+     * @param length the number of bytes that the stream provides, or {@link #UNKNOWN_LENGTH}
+     */
+    static RequestBodySource of(InputStream content, long length) {
+        return new StreamSource(content, length);
+    }
+
+    static RequestBodySource of(Path file) throws IOException {
+        return new FileSource(file, Files.size(file));
+    }
+
+    static RequestBodySource of(ByteBuffer content) {
+        return new ByteBufferSource(content);
+    }
+
+    /**
+     * @param length number of bytes to map from the offset, or {@link #UNKNOWN_LENGTH} to map up to the end of the file
+     */
+    static RequestBodySource ofMapped(Path file, long offset, long length) throws IOException {
+        return ofMapped(file, offset, length, MAX_MAPPED_REGION);
+    }
+
+    static RequestBodySource ofMapped(Path file, long offset, long length, long regionSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (offset < 0 || offset > size) {
+                throw new IllegalArgumentException("Invalid offset " + offset + " for file of size " + size);
+            }
+            if (length == UNKNOWN_LENGTH) {
+                length = size - offset;
+            } else if (length < 0 || offset + length > size) {
+                throw new IllegalArgumentException(
+                        "Invalid length " + length + " at offset " + offset + " for file of size " + size);
+            }
+            // mappings remain valid after the channel is closed
+            final int count = (int) ((length + regionSize - 1) / regionSize);
+            final ByteBuffer[] regions = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                final long position = offset + i * regionSize;
+                regions[i] = channel.map(
+                        FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, offset + length - position));
+            }
+            return new MappedSource(regions, length);
+        }
+    }
+
+    /**
+     * @return body length in bytes, or {@link #UNKNOWN_LENGTH}
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * @return a stream over the body content, from its start unless
+     *      the source is a stream that can only be read once
+     */
+    abstract InputStream open() throws IOException;
+
+    /**
+     * @return the whole body content
+     */
+    byte[] toByteArray() throws IOException {
+        try (InputStream in = open()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * @return a ServletInputStream over the body content
+     */
+    ServletInputStream newServletInputStream() throws IOException {
+        return new BodyInputStream(open(), length);
+    }
+
+    private static final class BytesSource extends RequestBodySource {
+        private final byte[] content;
+
+        BytesSource(byte[] content) {
+            super(content.length);
+            this.content = content;
+        }
+
+        @Override
+        InputStream open() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        byte[] toByteArray() {
+            return content;
+        }
+    }
+
+    private static final class StreamSource extends RequestBodySource {
+        private final InputStream content;
+
+        StreamSource(InputStream content, long length) {
+            super(length);
+            // the stream is read once, so all callers share the remaining length
+            this.content = new InputStreamView(content, length);
+        }
+
+        @Override
+        InputStream open() {
+            // not closed by callers, the stream belongs to whoever supplied it
+            return content;
+        }
+    }
+
+    private static final class FileSource extends RequestBodySource {
+        private final Path file;
+
+        FileSource(Path file, long length) {
+            super(length);
+            this.file = file;
+        }
+
+        @Override
+        InputStream open() throws IOException {
+            return Files.newInputStream(file);
+        }
+    }
+
+    private static final class ByteBufferSource extends RequestBodySource {
+        private final ByteBuffer content;
+
+        ByteBufferSource(ByteBuffer content) {
+            super(content.remaining());
+            this.content = content.asReadOnlyBuffer();
+        }
+
+        @Override
+        InputStream open() {
+            return new ByteBuffersInputStream(new ByteBuffer[] {content.duplicate()});
+        }
+    }
+
+    private static final class MappedSource extends RequestBodySource {
+        private final ByteBuffer[] regions;
+
+        MappedSource(ByteBuffer[] regions, long length) {
+            super(length);
+            this.regions = regions;
+        }
+
+        @Override
+        InputStream open() {
+            final ByteBuffer[] views = new ByteBuffer[regions.length];
+            for (int i = 0; i < regions.length; i++) {
+                views[i] = regions[i].duplicate();
+            }
+            return new ByteBuffersInputStream(views);
+        }
+    }
+
+    /** Stream that does not close the underlying one, and reads at most the body length from it */
+    private static final class InputStreamView extends InputStream {
+        private final InputStream delegate;
+        private final boolean bounded;
+        private long remaining;
+
+        /**
+         * @param length number of bytes to read at most, or {@link #UNKNOWN_LENGTH} to read up to the end
+         */
+        InputStreamView(InputStream delegate, long length) {
+            this.delegate = delegate;
+            this.bounded = length != UNKNOWN_LENGTH;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (bounded && remaining <= 0) {
+                return -1;
+            }
+            final int b = delegate.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (bounded && remaining <= 0) {
+                return -1;
+            }
+            final int n = delegate.read(b, off, bounded ? (int) Math.min(len, remaining) : len);
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = delegate.skip(bounded ? Math.min(n, Math.max(remaining, 0)) : n);
+            if (skipped > 0) {
+                remaining -= skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            final int available = delegate.available();
+            return bounded ? (int) Math.min(available, Math.max(remaining, 0)) : available;
+        }
+    }
+
+    /** ServletInputStream with bulk operations, that knows when the body has been fully read */
+    private static final class BodyInputStream extends ServletInputStream {
+        private final InputStream delegate;
+        private final long length;
+        private long position;
+        private boolean endOfStream;
+
+        BodyInputStream(InputStream delegate, long length) {
+            this.delegate = delegate;
+            this.length = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = delegate.read();
+            if (b < 0) {
+                endOfStream = true;
+            } else {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = delegate.read(b, off, len);
+            if (n < 0) {
+                endOfStream = true;
+            } else {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = delegate.skip(n);
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return endOfStream || (length != UNKNOWN_LENGTH && position >= length);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Response body buffer made of a list of segments, so growing it never copies
+ * what was already written. Once the body grows past the spill threshold
+ * the content is moved to a temporary file.
+ */
+final class ResponseBodyBuffer extends OutputStream {
+
+    static final int MIN_SEGMENT_SIZE = 256;
+    static final int MAX_SEGMENT_SIZE = 64 * 1024;
+
+    /** Largest region that is mapped at once when exposing a spilled body as ByteBuffers */
+    private static final long MAX_MAPPED_REGION = Integer.MAX_VALUE;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private long spillThreshold;
+    private final Path spillDirectory;
+    private final List<byte[]> segments = new ArrayList<>();
+    private byte[] current;
+    private int currentCount;
+    private long size;
+
+    private SpillFile spillFile;
+    private Cleaner.Cleanable cleanable;
+
+    /**
+     * @param spillThreshold body size in bytes after which the content is moved
+     *      to a temporary file, a negative value disables spilling
+     */
+    ResponseBodyBuffer(long spillThreshold) {
+        this(spillThreshold, null);
+    }
+
+    /**
+     * @param spillThreshold body size in bytes after which the content is moved
+     *      to a temporary file, a negative value disables spilling
+     * @param spillDirectory directory for the temporary file, null for the default
+     *      temporary directory
+     */
+    ResponseBodyBuffer(long spillThreshold, Path spillDirectory) {
+        this.spillThreshold = spillThreshold;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @param spillThreshold body size in bytes after which the content is moved
+     *      to a temporary file, a negative value disables spilling
+     */
+    void setSpillThreshold(long spillThreshold) {
+        this.spillThreshold = spillThreshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (spillFile == null && current != null && currentCount < current.length && !exceedsThreshold(1)) {
+            current[currentCount++] = (byte) b;
+            size++;
+        } else if (spillFile != null) {
+            spillFile.out.write(b);
+            size++;
+        } else {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (spillFile == null && exceedsThreshold(len)) {
+            spill();
+        }
+        if (spillFile != null) {
+            spillFile.out.write(b, off, len);
+            size += len;
+            return;
+        }
+        while (len > 0) {
+            if (current == null || currentCount == current.length) {
+                newSegment();
+            }
+            int n = Math.min(len, current.length - currentCount);
+            System.arraycopy(b, off, current, currentCount, n);
+            currentCount += n;
+            size += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private boolean exceedsThreshold(int len) {
+        return spillThreshold >= 0 && size + len > spillThreshold;
+    }
+
+    private void newSegment() {
+        if (current != null) {
+            segments.add(current);
+        }
+        // small bodies stay small, larger ones quickly move to the maximum segment size
+        int segmentSize = current == null ? MIN_SEGMENT_SIZE : Math.min(current.length * 2, MAX_SEGMENT_SIZE);
+        current = new byte[segmentSize];
+        currentCount = 0;
+    }
+
+    private void spill() throws IOException {
+        Path file = spillDirectory == null
+                ? Files.createTempFile("sling-mock-response-", ".tmp")
+                : Files.createTempFile(spillDirectory, "sling-mock-response-", ".tmp");
+        SpillFile spilled = new SpillFile(file);
+        cleanable = CLEANER.register(this, spilled);
+        spillFile = spilled;
+        for (byte[] segment : segments) {
+            spilled.out.write(segment);
+        }
+        if (current != null) {
+            spilled.out.write(current, 0, currentCount);
+        }
+        segments.clear();
+        current = null;
+        currentCount = 0;
+    }
+
+    /**
+     * @return number of bytes written so far
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the content has been moved to a temporary file
+     */
+    boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * @return a copy of the content
+     */
+    byte[] toByteArray() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Response body too large for a byte array: " + size + " bytes");
+        }
+        byte[] result = new byte[(int) size];
+        if (spillFile != null) {
+            try (InputStream in = toInputStream()) {
+                int read = in.readNBytes(result, 0, result.length);
+                if (read != result.length) {
+                    throw new IOException("Unexpected end of spilled response body");
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        } else {
+            int pos = 0;
+            for (byte[] segment : segments) {
+                System.arraycopy(segment, 0, result, pos, segment.length);
+                pos += segment.length;
+            }
+            if (current != null) {
+                System.arraycopy(current, 0, result, pos, currentCount);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the content decoded with the supplied charset
+     */
+    String toString(Charset charset) {
+        if (spillFile == null && segments.isEmpty()) {
+            // single segment, decode in place
+            return current == null ? "" : new String(current, 0, currentCount, charset);
+        }
+        return new String(toByteArray(), charset);
+    }
+
+    /**
+     * @return read-only view of the content written so far, without copying it
+     */
+    ByteBuffer[] toByteBuffers() {
+        if (spillFile != null) {
+            return spillFile.map(size);
+        }
+        List<ByteBuffer> result = new ArrayList<>(segments.size() + 1);
+        for (byte[] segment : segments) {
+            result.add(ByteBuffer.wrap(segment).asReadOnlyBuffer());
+        }
+        if (current != null && currentCount > 0) {
+            result.add(ByteBuffer.wrap(current, 0, currentCount).slice().asReadOnlyBuffer());
+        }
+        return result.toArray(new ByteBuffer[0]);
+    }
+
+    /**
+     * @return stream over the content written so far, without copying it
+     */
+    InputStream toInputStream() {
+        if (spillFile != null) {
+            try {
+                spillFile.out.flush();
+                return new BoundedInputStream(Files.newInputStream(spillFile.path), size);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return new ByteBuffersInputStream(toByteBuffers());
+    }
+
+    /**
+     * Releases the temporary file, if any.
+     */
+    void release() {
+        if (cleanable != null) {
+            cleanable.clean();
+            cleanable = null;
+        }
+    }
+
+    /** Temporary file holding spilled content, also used as the cleaner action */
+    private static final class SpillFile implements Runnable {
+
+        private final Path path;
+        private final OutputStream out;
+
+        SpillFile(Path path) throws IOException {
+            this.path = path;
+            this.out = new BufferedOutputStream(Files.newOutputStream(path), MAX_SEGMENT_SIZE);
+        }
+
+        ByteBuffer[] map(long size) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                out.flush();
+                List<ByteBuffer> result = new ArrayList<>();
+                for (long pos = 0; pos < size; pos += MAX_MAPPED_REGION) {
+                    long regionSize = Math.min(MAX_MAPPED_REGION, size - pos);
+                    result.add(channel.map(FileChannel.MapMode.READ_ONLY, pos, regionSize));
+                }
+                return result.toArray(new ByteBuffer[0]);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                out.close();
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                // ignore, temporary file
+            }
+        }
+    }
+
+    /** Limits a file stream to the content size at the time the view was created */
+    private static final class BoundedInputStream extends InputStream {
+
+        private final InputStream delegate;
+        private long remaining;
+
+        BoundedInputStream(InputStream delegate, long limit) {
+            this.delegate = delegate;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = delegate.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = delegate.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(delegate.available(), remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
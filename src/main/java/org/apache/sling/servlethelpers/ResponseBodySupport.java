@@ -18,12 +18,17 @@
  */
 package org.apache.sling.servlethelpers;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.Objects;
 
 import jakarta.servlet.ServletOutputStream;
@@ -34,18 +39,44 @@ import jakarta.servlet.WriteListener;
  */
 class ResponseBodySupport {
 
-    private ByteArrayOutputStream outputStream;
+    /** By default the response body is never moved to a temporary file */
+    static final long NO_SPILL = -1;
+
+    private long spillThreshold = NO_SPILL;
+    private ResponseBodyBuffer outputStream;
     private ServletOutputStream servletOutputStream;
     private PrintWriter printWriter;
+    private OutputStream target;
+    private long targetCount;
 
     public ResponseBodySupport() {
         reset();
     }
 
     public void reset() {
-        outputStream = new ByteArrayOutputStream();
+        if (outputStream != null) {
+            outputStream.release();
+        }
+        outputStream = new ResponseBodyBuffer(spillThreshold);
         servletOutputStream = null;
         printWriter = null;
+        targetCount = 0;
+    }
+
+    /**
+     * @param target if not null, the body is written directly to this stream
+     *      instead of being buffered
+     */
+    public void setTarget(OutputStream target) {
+        this.target = target;
+    }
+
+    /**
+     * @return true if content has already been written to the target stream,
+     *      which cannot be taken back
+     */
+    public boolean isCommitted() {
+        return targetCount > 0;
     }
 
     public ServletOutputStream getOutputStream() {
@@ -53,7 +84,29 @@ class ResponseBodySupport {
             servletOutputStream = new ServletOutputStream() {
                 @Override
                 public void write(int b) throws IOException {
-                    outputStream.write(b);
+                    if (target != null) {
+                        target.write(b);
+                        targetCount++;
+                    } else {
+                        outputStream.write(b);
+                    }
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (target != null) {
+                        target.write(b, off, len);
+                        targetCount += len;
+                    } else {
+                        outputStream.write(b, off, len);
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    if (target != null) {
+                        target.flush();
+                    }
                 }
 
                 @Override
@@ -81,7 +134,40 @@ class ResponseBodySupport {
         return printWriter;
     }
 
+    /**
+     * @param spillThreshold body size in bytes after which the content is moved to a
+     *      temporary file, a negative value disables this
+     */
+    public void setSpillThreshold(long spillThreshold) {
+        this.spillThreshold = spillThreshold;
+        outputStream.setSpillThreshold(spillThreshold);
+    }
+
+    public long getSpillThreshold() {
+        return spillThreshold;
+    }
+
     public byte[] getOutput() {
+        flush();
+        return outputStream.toByteArray();
+    }
+
+    public InputStream getOutputAsStream() {
+        flush();
+        return outputStream.toInputStream();
+    }
+
+    public ByteBuffer[] getOutputAsByteBuffers() {
+        flush();
+        return outputStream.toByteBuffers();
+    }
+
+    public long getOutputLength() {
+        flush();
+        return outputStream.size() + targetCount;
+    }
+
+    public void flush() {
         if (printWriter != null) {
             printWriter.flush();
         }
@@ -92,15 +178,17 @@ class ResponseBodySupport {
                 // ignore
             }
         }
-        return outputStream.toByteArray();
     }
 
     public String getOutputAsString(String charset) {
+        Charset cs;
         try {
-            return new String(getOutput(), defaultCharset(charset));
-        } catch (UnsupportedEncodingException ex) {
+            cs = Charset.forName(defaultCharset(charset));
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException ex) {
             throw new RuntimeException("Unsupported encoding: " + defaultCharset(charset), ex);
         }
+        flush();
+        return outputStream.toString(cs);
     }
 
     private String defaultCharset(String charset) {
@@ -18,19 +18,37 @@
  */
 package org.apache.sling.servlethelpers.internalrequests;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import jakarta.servlet.http.Cookie;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest;
+import org.apache.sling.servlethelpers.MockSlingJakartaHttpServletResponse;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 /** Fluent helper for Sling internal requests.
  *
@@ -48,8 +66,40 @@ public abstract class BaseInternalRequest {
     protected String requestMethod = DEFAULT_METHOD;
     protected String contentType;
     protected Reader bodyReader;
+    private BufferedReader bufferedBodyReader;
+    private InputStream bodyStream;
+    private long bodyLength;
+    private ByteBuffer bodyBuffer;
     protected boolean explicitStatusCheck;
     protected Map<String, Object> parameters = new HashMap<>();
+    /** True while parameters is the read-only map of a template, which is copied before changing it */
+    private boolean sharedParameters;
+
+    protected Duration timeout;
+    private volatile boolean timedOut;
+    protected InternalResponseCache responseCache;
+    protected String cacheScope;
+    protected boolean cacheBypass;
+    private boolean servedFromCache;
+    protected boolean singleFlight;
+    protected boolean adapterCache;
+    private boolean sharedExecution;
+
+    /** Executions in progress in single-flight mode, by execution target and response cache key */
+    private static final Map<InFlightKey, CompletableFuture<CachedResponse>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    /** Key of an in-flight execution, its target is compared by identity */
+    private record InFlightKey(Object target, String key) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof InFlightKey other && target == other.target && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(target) + key.hashCode();
+        }
+    }
 
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -93,10 +143,77 @@ public abstract class BaseInternalRequest {
 
     /** Use the supplied Reader as the request's body content */
     public BaseInternalRequest withBody(Reader bodyContent) {
+        clearBody();
         bodyReader = bodyContent;
         return this;
     }
 
+    /** Use the supplied InputStream as the request's body content. The stream
+     *  is read lazily by the executed request, without copying it, and is not closed.
+     *
+     *  @param length number of bytes that the stream provides, or -1 if unknown
+     */
+    public BaseInternalRequest withBodyStream(InputStream bodyContent, long length) {
+        clearBody();
+        bodyStream = bodyContent;
+        bodyLength = length;
+        return this;
+    }
+
+    /** Use the remaining content of the supplied ByteBuffer as the request's body
+     *  content, without copying it. The buffer's position is not modified.
+     */
+    public BaseInternalRequest withBodyBuffer(ByteBuffer bodyContent) {
+        clearBody();
+        bodyBuffer = bodyContent;
+        return this;
+    }
+
+    private void clearBody() {
+        bodyReader = null;
+        bufferedBodyReader = null;
+        bodyStream = null;
+        bodyBuffer = null;
+    }
+
+    /** @return true if a body has been supplied with withBody, withBodyStream or withBodyBuffer */
+    protected boolean hasBody() {
+        return bodyReader != null || bodyStream != null || bodyBuffer != null;
+    }
+
+    /** Set the body content on the request that's about to be executed. Reader
+     *  bodies are encoded on the fly if the request's InputStream is used,
+     *  with the request's character encoding or UTF-8 if none is set.
+     */
+    void setRequestBody(MockSlingJakartaHttpServletRequest request) {
+        if (bodyStream != null) {
+            request.setContent(bodyStream, bodyLength);
+        } else if (bodyBuffer != null) {
+            request.setContent(bodyBuffer);
+        } else if (bodyReader != null) {
+            Charset charset = StandardCharsets.UTF_8;
+            if (request.getCharacterEncoding() != null) {
+                try {
+                    charset = Charset.forName(request.getCharacterEncoding());
+                } catch (IllegalArgumentException ignore) {
+                    // keep the default
+                }
+            }
+            request.setContent(new ReaderInputStream(bodyReader, charset));
+        }
+    }
+
+    /** @return the Reader body, wrapped in a BufferedReader only once, or null
+     *  if no Reader body was supplied
+     */
+    BufferedReader getBodyReader() {
+        if (bodyReader != null && bufferedBodyReader == null) {
+            bufferedBodyReader =
+                    bodyReader instanceof BufferedReader ? (BufferedReader) bodyReader : new BufferedReader(bodyReader);
+        }
+        return bufferedBodyReader;
+    }
+
     /** Sets the optional selectors of the internal request, which influence
      *  the Servlet/Script resolution.
      */
@@ -122,7 +239,7 @@ public abstract class BaseInternalRequest {
     /** Set a request parameter */
     public BaseInternalRequest withParameter(String key, Object value) {
         if (key != null && value != null) {
-            parameters.put(key, value);
+            ownParameters().put(key, value);
         } else {
             throw new IllegalArgumentException("Null key or value");
         }
@@ -132,12 +249,336 @@ public abstract class BaseInternalRequest {
     /** Add the supplied request parameters to the current ones */
     public BaseInternalRequest withParameters(Map<String, Object> additionalParameters) {
         if (additionalParameters != null) {
-            parameters.putAll(additionalParameters);
+            ownParameters().putAll(additionalParameters);
+        }
+
+        return this;
+    }
+
+    /** @return the parameters map, copied first if it's shared with a template */
+    private Map<String, Object> ownParameters() {
+        if (sharedParameters) {
+            parameters = new HashMap<>(parameters);
+            sharedParameters = false;
         }
+        return parameters;
+    }
+
+    /** Limit the execution time of this request. If the timeout expires, the
+     *  thread that executes the Servlet or Script is interrupted and abandoned,
+     *  and {@link #execute()} throws an {@link InternalRequestTimeoutException}.
+     *
+     *  With a timeout, the request is executed on a separate thread, with a copy
+     *  of the caller's slf4j MDC. Note that the ResourceResolver is not thread-safe,
+     *  it must not be used by the caller while the request executes.
+     *
+     *  @param timeout null or zero means no timeout, which is the default
+     */
+    public BaseInternalRequest withTimeout(Duration timeout) {
+        if (timeout != null && timeout.isNegative()) {
+            throw new IllegalArgumentException("Negative timeout: " + timeout);
+        }
+        this.timeout = timeout == null || timeout.isZero() ? null : timeout;
+        return this;
+    }
+
+    /** @return true if the execution of this request was abandoned because its timeout expired */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /** Use the supplied cache for the response of this request, if it is
+     *  a GET or HEAD request without a body. The cache can be shared by
+     *  requests that run in parallel.
+     *
+     *  Responses are cached regardless of the user on whose behalf the request
+     *  is executed, use {@link #withCacheScope} if they depend on it.
+     */
+    public BaseInternalRequest withResponseCache(InternalResponseCache cache) {
+        this.responseCache = cache;
+        return this;
+    }
+
+    /** Add the supplied scope, like the ResourceResolver's user ID, to the
+     *  response cache key. Requests with different scopes do not share cached
+     *  responses.
+     */
+    public BaseInternalRequest withCacheScope(String scope) {
+        this.cacheScope = scope;
+        return this;
+    }
 
+    /** If true, execute this request without using the response cache,
+     *  and do not store its response there.
+     */
+    public BaseInternalRequest withCacheBypass(boolean bypass) {
+        this.cacheBypass = bypass;
+        return this;
+    }
+
+    /** @return true if the response of this request was provided by the response cache */
+    public boolean isServedFromCache() {
+        return servedFromCache;
+    }
+
+    /** Enable or disable the single-flight mode: concurrent executions of identical
+     *  requests that use this mode share a single execution of the Servlet or Script,
+     *  and all receive a copy of its buffered response. If that execution fails, all
+     *  waiting requests fail with an IOException.
+     *
+     *  Only GET and HEAD requests without a body are shared, and only if their
+     *  response is not streamed. Requests are identical if they use the same
+     *  ServletResolver or SlingRequestProcessor and their {@link #toString()}
+     *  info, parameters and {@link #withCacheScope cache scope} are equal, use the
+     *  cache scope if the response depends on the user.
+     */
+    public BaseInternalRequest withSingleFlight(boolean singleFlight) {
+        this.singleFlight = singleFlight;
         return this;
     }
 
+    /** Enable or disable caching of adaptTo results on the executed request, so that
+     *  adapting it several times to the same type, to a Sling Model for example, only
+     *  builds the adapter once. Only non-null results are cached.
+     */
+    public BaseInternalRequest withAdapterCache(boolean adapterCache) {
+        this.adapterCache = adapterCache;
+        return this;
+    }
+
+    /** @return true if this request received the response of a concurrent identical request,
+     *      in single-flight mode
+     */
+    public boolean isSharedExecution() {
+        return sharedExecution;
+    }
+
+    /** @return the object that executes this request, like the ServletResolver or
+     *  SlingRequestProcessor. Only requests with the same execution target share
+     *  an execution in single-flight mode, by default a request shares with no other.
+     */
+    protected Object getExecutionTarget() {
+        return this;
+    }
+
+    /** @return true if the response of this request can be cached or shared
+     *      with concurrent identical requests
+     */
+    protected boolean isShareable() {
+        return !hasBody() && ("GET".equals(requestMethod) || "HEAD".equals(requestMethod));
+    }
+
+    /** @return the response cache key of this request, built from
+     *  its {@link #toString()} value, parameters and cache scope
+     */
+    String getResponseCacheKey() {
+        final StringBuilder sb = new StringBuilder(toString());
+        for (Map.Entry<String, Object> e : new TreeMap<>(parameters).entrySet()) {
+            sb.append('&').append(e.getKey()).append('=');
+            if (e.getValue() instanceof Object[] values) {
+                sb.append(Arrays.toString(values));
+            } else {
+                sb.append(e.getValue());
+            }
+        }
+        if (cacheScope != null) {
+            sb.append(" SCOPE=").append(cacheScope);
+        }
+        return sb.toString();
+    }
+
+    /** Run the supplied delegate execution, or provide its response from the
+     *  response cache or from a concurrent identical request if those are enabled.
+     *
+     *  @param response the response to execute into
+     *  @param streamed true if the response body is streamed to an output target
+     */
+    <E extends Exception> void executeDelegate(
+            DelegateExecution<E> execution, MockSlingJakartaHttpServletResponse response, boolean streamed)
+            throws E, IOException {
+        if (streamed || !isShareable() || (!singleFlight && responseCache == null)) {
+            runDelegate(execution, response, !streamed);
+            return;
+        }
+        final String key = getResponseCacheKey();
+        final boolean useCache = responseCache != null && !cacheBypass;
+        if (useCache) {
+            final CachedResponse cached = responseCache.get(key);
+            if (cached != null) {
+                cached.replay(response);
+                servedFromCache = true;
+                log.debug("Response served from cache for {}", key);
+                return;
+            }
+        }
+        if (!singleFlight) {
+            runDelegate(execution, response, true);
+        } else if (!runSingleFlight(key, execution, response)) {
+            return;
+        }
+        if (useCache && CachedResponse.isCacheable(response)) {
+            responseCache.put(key, CachedResponse.capture(response));
+        }
+    }
+
+    /** Run the supplied execution unless an identical one is in flight, in which case
+     *  its response is copied to the supplied one once it completes.
+     *
+     *  @return true if the supplied execution was run, false if the response was shared
+     */
+    private <E extends Exception> boolean runSingleFlight(
+            String key, DelegateExecution<E> execution, MockSlingJakartaHttpServletResponse response)
+            throws E, IOException {
+        final InFlightKey inFlightKey = new InFlightKey(getExecutionTarget(), key);
+        final CompletableFuture<CachedResponse> ours = new CompletableFuture<>();
+        final CompletableFuture<CachedResponse> inFlight = IN_FLIGHT.putIfAbsent(inFlightKey, ours);
+        if (inFlight != null) {
+            awaitShared(inFlight).replay(response);
+            sharedExecution = true;
+            log.debug("Response shared with a concurrent execution of {}", key);
+            return false;
+        }
+        try {
+            runDelegate(execution, response, true);
+            ours.complete(CachedResponse.capture(response));
+            return true;
+        } catch (Exception | Error e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(inFlightKey, ours);
+        }
+    }
+
+    private CachedResponse awaitShared(CompletableFuture<CachedResponse> inFlight) throws IOException {
+        try {
+            return timeout == null ? inFlight.get() : inFlight.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException te) {
+            timedOut = true;
+            throw new InternalRequestTimeoutException(toString(), timeout);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a concurrent execution of " + this);
+        } catch (ExecutionException ee) {
+            throw new IOException("Concurrent execution failed for " + this, ee.getCause());
+        }
+    }
+
+    /** The delegate execution of a request, see {@link #runDelegate} */
+    @FunctionalInterface
+    protected interface DelegateExecution<E extends Exception> {
+        void run(MockSlingJakartaHttpServletResponse response) throws E, IOException;
+    }
+
+    /** Run the supplied delegate execution, on a separate thread and limited
+     *  in time if a timeout has been set.
+     *
+     *  @param response the response to execute into
+     *  @param isolate if true and a timeout is set, the execution writes to its own
+     *      response which is copied to the supplied one only if it completes in time,
+     *      so that an abandoned execution cannot modify the supplied response.
+     *  @throws InternalRequestTimeoutException if the timeout expires
+     */
+    @SuppressWarnings("unchecked")
+    protected <E extends Exception> void runDelegate(
+            DelegateExecution<E> execution, MockSlingJakartaHttpServletResponse response, boolean isolate)
+            throws E, IOException {
+        if (timeout == null) {
+            execution.run(response);
+            return;
+        }
+        final MockSlingJakartaHttpServletResponse target =
+                isolate ? new MockSlingJakartaHttpServletResponse() : response;
+        final Map<String, String> callerContext = MDC.getCopyOfContextMap();
+        final Future<?> f = InternalRequestExecutors.defaultExecutor().submit(() -> {
+            final Map<String, String> workerContext = MDC.getCopyOfContextMap();
+            setMdcContext(callerContext);
+            try {
+                execution.run(target);
+                return null;
+            } finally {
+                setMdcContext(workerContext);
+            }
+        });
+        try {
+            f.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            if (target != response) {
+                copyResponse(target, response);
+            }
+        } catch (TimeoutException te) {
+            f.cancel(true);
+            timedOut = true;
+            log.warn("Internal request timed out after {} msec, abandoning it", timeout.toMillis());
+            throw new InternalRequestTimeoutException(toString(), timeout);
+        } catch (InterruptedException ie) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + this);
+        } catch (ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            } else if (cause instanceof RuntimeException re) {
+                throw re;
+            } else if (cause instanceof Error err) {
+                throw err;
+            }
+            throw (E) cause;
+        }
+    }
+
+    /** Copy the state of a completed response to a fresh one */
+    static void copyResponse(MockSlingJakartaHttpServletResponse from, MockSlingJakartaHttpServletResponse to)
+            throws IOException {
+        if (from.getStatusMessage() != null) {
+            to.sendError(from.getStatus(), from.getStatusMessage());
+        } else {
+            to.setStatus(from.getStatus());
+        }
+        to.setCharacterEncoding(from.getCharacterEncoding());
+        if (from.getContentType() != null) {
+            to.setContentType(from.getContentType());
+        }
+        for (String name : from.getHeaderNames()) {
+            // cookies add their own Set-Cookie headers below
+            if (!"Set-Cookie".equalsIgnoreCase(name)) {
+                for (String value : from.getHeaders(name)) {
+                    to.addHeader(name, value);
+                }
+            }
+        }
+        final Cookie[] cookies = from.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                to.addCookie(cookie);
+            }
+        }
+        to.getOutputStream().write(from.getOutput());
+        if (from.isCommitted()) {
+            to.flushBuffer();
+        }
+    }
+
+    static void setMdcContext(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+
+    /** Copy the frozen values of the supplied template to this request. Its
+     *  parameters are shared until this request adds its own.
+     */
+    void applyTemplate(InternalRequestTemplate template) {
+        this.selectorString = template.getSelectorString();
+        this.extension = template.getExtension();
+        this.requestMethod = template.getRequestMethod();
+        this.contentType = template.getContentType();
+        this.parameters = template.getParameters();
+        this.sharedParameters = true;
+    }
+
     public abstract BaseInternalRequest execute() throws IOException;
 
     /** Provide the Resource to use to execute the request */
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.servlethelpers.MockSlingJakartaHttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** Immutable copy of the status, headers, content type and body
+ *  of an internal request's response, as stored by an
+ *  {@link InternalResponseCache}.
+ */
+public final class CachedResponse {
+    private final int status;
+    private final String contentType;
+    private final String characterEncoding;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+
+    private CachedResponse(
+            int status, String contentType, String characterEncoding, Map<String, List<String>> headers, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.characterEncoding = characterEncoding;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /** @return true if the supplied response can be cached, based on its status */
+    static boolean isCacheable(@NotNull MockSlingJakartaHttpServletResponse response) {
+        return response.getStatus() >= 200 && response.getStatus() < 300;
+    }
+
+    /** Copy the current state of the supplied response */
+    static CachedResponse capture(@NotNull MockSlingJakartaHttpServletResponse response) {
+        final Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            headers.put(name, Collections.unmodifiableList(new ArrayList<>(response.getHeaders(name))));
+        }
+        return new CachedResponse(
+                response.getStatus(),
+                response.getContentType(),
+                response.getCharacterEncoding(),
+                Collections.unmodifiableMap(headers),
+                response.getOutput());
+    }
+
+    /** Write this cached state to the supplied, fresh response */
+    void replay(@NotNull MockSlingJakartaHttpServletResponse response) throws IOException {
+        response.setStatus(status);
+        response.setCharacterEncoding(characterEncoding);
+        if (contentType != null) {
+            response.setContentType(contentType);
+        }
+        for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+            for (String value : e.getValue()) {
+                response.addHeader(e.getKey(), value);
+            }
+        }
+        response.getOutputStream().write(body);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /** @return the content type, including the charset if one was set */
+    @Nullable
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Nullable
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    /** @return the response headers, as an unmodifiable map */
+    @NotNull
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /** @return a copy of the response body */
+    @NotNull
+    public byte[] getBody() {
+        return body.clone();
+    }
+
+    /** @return the length of the response body in bytes */
+    public int getBodyLength() {
+        return body.length;
+    }
+}
@@ -23,7 +23,10 @@ import javax.servlet.http.HttpServletResponse;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.Map;
 
 import org.apache.sling.api.SlingHttpServletRequest;
@@ -73,6 +76,16 @@ public abstract class InternalRequest extends BaseInternalRequest {
         return (InternalRequest) super.withBody(bodyContent);
     }
 
+    @Override
+    public InternalRequest withBodyStream(InputStream bodyContent, long length) {
+        return (InternalRequest) super.withBodyStream(bodyContent, length);
+    }
+
+    @Override
+    public InternalRequest withBodyBuffer(ByteBuffer bodyContent) {
+        return (InternalRequest) super.withBodyBuffer(bodyContent);
+    }
+
     @Override
     public InternalRequest withSelectors(String... selectors) {
         return (InternalRequest) super.withSelectors(selectors);
@@ -93,6 +106,36 @@ public abstract class InternalRequest extends BaseInternalRequest {
         return (InternalRequest) super.withParameters(additionalParameters);
     }
 
+    @Override
+    public InternalRequest withTimeout(Duration timeout) {
+        return (InternalRequest) super.withTimeout(timeout);
+    }
+
+    @Override
+    public InternalRequest withResponseCache(InternalResponseCache cache) {
+        return (InternalRequest) super.withResponseCache(cache);
+    }
+
+    @Override
+    public InternalRequest withCacheScope(String scope) {
+        return (InternalRequest) super.withCacheScope(scope);
+    }
+
+    @Override
+    public InternalRequest withCacheBypass(boolean bypass) {
+        return (InternalRequest) super.withCacheBypass(bypass);
+    }
+
+    @Override
+    public InternalRequest withSingleFlight(boolean singleFlight) {
+        return (InternalRequest) super.withSingleFlight(singleFlight);
+    }
+
+    @Override
+    public InternalRequest withAdapterCache(boolean adapterCache) {
+        return (InternalRequest) super.withAdapterCache(adapterCache);
+    }
+
     /** Execute the internal request. Can be called right after
      *  creating it, if no options need to be set.
      *
@@ -105,35 +148,43 @@ public abstract class InternalRequest extends BaseInternalRequest {
             throw new IOException("Request was already executed");
         }
         final Resource resource = getExecutionResource();
-        request = new MockSlingHttpServletRequest(new MockSlingJakartaHttpServletRequest(resourceResolver) {
-            @Override
-            protected MockRequestPathInfo newMockRequestPathInfo() {
-                MockRequestPathInfo rpi = super.newMockRequestPathInfo();
-                rpi.setResourcePath(path);
-                rpi.setExtension(extension);
-                rpi.setSelectorString(selectorString);
-                return rpi;
-            }
+        final MockSlingJakartaHttpServletRequest wrappedRequest =
+                new MockSlingJakartaHttpServletRequest(resourceResolver) {
+                    @Override
+                    protected MockRequestPathInfo newMockRequestPathInfo() {
+                        MockRequestPathInfo rpi = super.newMockRequestPathInfo();
+                        rpi.setResourcePath(path);
+                        rpi.setExtension(extension);
+                        rpi.setSelectorString(selectorString);
+                        return rpi;
+                    }
 
-            @Override
-            public BufferedReader getReader() {
-                if (bodyReader != null) {
-                    return new BufferedReader(bodyReader);
-                } else {
-                    return super.getReader();
-                }
-            }
-        });
+                    @Override
+                    public BufferedReader getReader() {
+                        final BufferedReader reader = getBodyReader();
+                        return reader != null ? reader : super.getReader();
+                    }
+                };
+        request = new MockSlingHttpServletRequest(wrappedRequest);
         request.setMethod(requestMethod);
         request.setContentType(contentType);
         request.setResource(resource);
         request.setParameterMap(parameters);
+        request.setAdapterCacheEnabled(adapterCache);
+        setRequestBody(wrappedRequest);
 
-        response = new MockSlingHttpServletResponse(new MockSlingJakartaHttpServletResponse());
+        final MockSlingJakartaHttpServletResponse wrappedResponse = new MockSlingJakartaHttpServletResponse();
+        response = new MockSlingHttpServletResponse(wrappedResponse);
 
         MDC.put(MDC_KEY, toString());
         try {
-            delegateExecute(request, response, resourceResolver);
+            executeDelegate(
+                    target -> delegateExecute(
+                            request,
+                            target == wrappedResponse ? response : new MockSlingHttpServletResponse(target),
+                            resourceResolver),
+                    wrappedResponse,
+                    false);
         } catch (ServletException sx) {
             throw new IOException("ServletException in execute()", sx);
         }
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** Executes a batch of prepared internal requests concurrently.
+ *
+ *  At most {@link #withConcurrency(int)} requests run at the same time, the
+ *  thread that calls {@link #execute()} waits for a free slot before starting
+ *  the next request, which provides back-pressure when a batch contains
+ *  many requests.
+ *
+ *  Results are returned in the order the requests were added. Each executed
+ *  request has its status checked against the accepted values, so that
+ *  methods like {@link JakartaInternalRequest#getResponseAsString()} can be
+ *  called on requests that have an accepted status.
+ */
+public class InternalRequestBatch {
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private final List<JakartaInternalRequest> requests = new ArrayList<>();
+    private Executor executor;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private Duration deadline;
+    private boolean failFast;
+    private int[] acceptedStatus = {HttpServletResponse.SC_OK};
+
+    /** The outcome of one of the batch's requests */
+    public static final class Result {
+        private final JakartaInternalRequest request;
+        private final int status;
+        private final IOException error;
+
+        private Result(JakartaInternalRequest request, int status, IOException error) {
+            this.request = request;
+            this.status = status;
+            this.error = error;
+        }
+
+        public @NotNull JakartaInternalRequest getRequest() {
+            return request;
+        }
+
+        /** @return the response status, or -1 if the request did not complete */
+        public int getStatus() {
+            return status;
+        }
+
+        /** @return the execution or status check error, null if the request succeeded */
+        public @Nullable IOException getError() {
+            return error;
+        }
+
+        /** @return true if the request executed and its status is one of the accepted ones */
+        public boolean isAccepted() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: status=%d error=%s", request, status, error);
+        }
+    }
+
+    /** Add a request to this batch, it must not have been executed yet */
+    public InternalRequestBatch add(@NotNull JakartaInternalRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("request is null");
+        }
+        requests.add(request);
+        return this;
+    }
+
+    /** Add several requests to this batch */
+    public InternalRequestBatch addAll(@NotNull Collection<? extends JakartaInternalRequest> toAdd) {
+        toAdd.forEach(this::add);
+        return this;
+    }
+
+    /** Set the Executor used to run the requests. By default the one
+     *  of {@link JakartaInternalRequest#executeAsync()} is used.
+     */
+    public InternalRequestBatch withExecutor(@NotNull Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is null");
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    /** Set the maximum number of requests that run at the same time */
+    public InternalRequestBatch withConcurrency(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + maxConcurrent);
+        }
+        this.concurrency = maxConcurrent;
+        return this;
+    }
+
+    /** Set the maximum duration of the whole batch. Requests that did not
+     *  complete when it expires are reported with an error, but they are
+     *  not interrupted.
+     */
+    public InternalRequestBatch withDeadline(@Nullable Duration deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /** Set the accepted response status values, defaults to 200 */
+    public InternalRequestBatch withAcceptedStatus(int... acceptedValues) {
+        if (acceptedValues == null || acceptedValues.length == 0) {
+            throw new IllegalArgumentException("At least one accepted status is required");
+        }
+        this.acceptedStatus = Arrays.copyOf(acceptedValues, acceptedValues.length);
+        return this;
+    }
+
+    /** If true, {@link #execute()} fails as soon as a request fails or returns
+     *  a status that is not accepted, and does not start the remaining requests.
+     *  Otherwise, which is the default, all results are collected.
+     */
+    public InternalRequestBatch withFailFast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    /** Execute all requests of this batch.
+     *
+     *  @return one Result per request, in the order the requests were added
+     *  @throws IOException in fail fast mode, if a request failed or returned
+     *      a status that is not accepted
+     *  @throws InterruptedIOException if the calling thread is interrupted
+     */
+    public List<Result> execute() throws IOException {
+        final long deadlineNanos = deadline == null ? Long.MAX_VALUE : System.nanoTime() + deadline.toNanos();
+        final Semaphore slots = new Semaphore(concurrency);
+        final CompletableFuture<Result> firstFailure = new CompletableFuture<>();
+        final List<CompletableFuture<Result>> futures = new ArrayList<>(requests.size());
+
+        for (JakartaInternalRequest request : requests) {
+            if (firstFailure.isDone() || !acquire(slots, deadlineNanos)) {
+                futures.add(CompletableFuture.completedFuture(notCompleted(request)));
+                continue;
+            }
+            final CompletableFuture<JakartaInternalRequest> execution =
+                    executor == null ? request.executeAsync() : request.executeAsync(executor);
+            futures.add(execution.handle((r, t) -> toResult(request, t)).whenComplete((result, t) -> {
+                slots.release();
+                if (failFast && !result.isAccepted()) {
+                    firstFailure.complete(result);
+                }
+            }));
+        }
+
+        final CompletableFuture<?> allDone = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+        await(failFast ? CompletableFuture.anyOf(allDone, firstFailure) : allDone, deadlineNanos);
+
+        if (failFast && firstFailure.isDone()) {
+            final Result failed = firstFailure.join();
+            throw new IOException("Batch failed at " + failed.getRequest(), failed.getError());
+        }
+        final List<Result> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(futures.get(i).getNow(notCompleted(requests.get(i))));
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    private Result toResult(JakartaInternalRequest request, Throwable t) {
+        if (t != null) {
+            final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            final IOException error =
+                    cause instanceof IOException ioe ? ioe : new IOException("Request execution failed", cause);
+            return new Result(request, -1, error);
+        }
+        int status = -1;
+        try {
+            status = request.getStatus();
+            request.checkStatus(acceptedStatus);
+            return new Result(request, status, null);
+        } catch (IOException ioe) {
+            return new Result(request, status, ioe);
+        }
+    }
+
+    private Result notCompleted(JakartaInternalRequest request) {
+        return new Result(request, -1, new IOException("Request did not complete before the batch ended"));
+    }
+
+    private static boolean acquire(Semaphore slots, long deadlineNanos) throws InterruptedIOException {
+        try {
+            if (deadlineNanos == Long.MAX_VALUE) {
+                slots.acquire();
+                return true;
+            }
+            return slots.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to execute a request");
+        }
+    }
+
+    private static void await(CompletableFuture<?> f, long deadlineNanos) throws InterruptedIOException {
+        try {
+            if (deadlineNanos == Long.MAX_VALUE) {
+                f.get();
+            } else {
+                f.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for requests to complete");
+        } catch (ExecutionException | TimeoutException e) {
+            // failures are reported per request
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+/** Provides the default executor for asynchronous internal requests.
+ *
+ *  Uses virtual threads when the runtime provides them, as internal
+ *  requests mostly wait on I/O, and falls back to a cached pool of
+ *  daemon threads otherwise.
+ */
+final class InternalRequestExecutors {
+
+    private static final String THREAD_NAME_PREFIX = "sling-internal-request-";
+
+    private InternalRequestExecutors() {
+        // to hide the public ctor
+    }
+
+    private static class Holder {
+        static final ExecutorService DEFAULT_EXECUTOR = createDefaultExecutor();
+    }
+
+    /** The shared default executor, created on first use */
+    static ExecutorService defaultExecutor() {
+        return Holder.DEFAULT_EXECUTOR;
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            // Java 21+, looked up dynamically as we still run on Java 17
+            final MethodHandle virtualThreadExecutor = MethodHandles.publicLookup()
+                    .findStatic(
+                            Executors.class,
+                            "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) virtualThreadExecutor.invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            LoggerFactory.getLogger(InternalRequestExecutors.class)
+                    .debug("Virtual threads not available, using a cached thread pool");
+        } catch (Throwable t) { // NOSONAR invoke() declares Throwable
+            LoggerFactory.getLogger(InternalRequestExecutors.class)
+                    .warn("Unable to create virtual threads executor, using a cached thread pool", t);
+        }
+        return Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r, THREAD_NAME_PREFIX + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.servlets.ServletResolver;
+import org.apache.sling.engine.SlingRequestProcessor;
+import org.jetbrains.annotations.NotNull;
+
+/** Immutable template for internal requests that are executed many times
+ *  with the same shape.
+ *
+ *  The path, selectors, extension, request method, content type, resource
+ *  types and static parameters are set once when the template is built.
+ *  Each call to one of the newXxxRequest methods then creates a request
+ *  that's preset with them, to which only the dynamic parts need to be
+ *  added, like additional parameters or a body.
+ *
+ *  The requests share the template's parameters until they add their own,
+ *  but each execution still creates its own mock request and response.
+ *
+ *  Templates are thread-safe, a single instance can be shared by all threads.
+ */
+public final class InternalRequestTemplate {
+    private final String path;
+    private final String selectorString;
+    private final String extension;
+    private final String requestMethod;
+    private final String contentType;
+    private final String resourceType;
+    private final String resourceSuperType;
+    private final Map<String, Object> parameters;
+
+    private InternalRequestTemplate(Builder b) {
+        this.path = b.path;
+        this.selectorString = b.selectorString;
+        this.extension = b.extension;
+        this.requestMethod = b.requestMethod;
+        this.contentType = b.contentType;
+        this.resourceType = b.resourceType;
+        this.resourceSuperType = b.resourceSuperType;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(b.parameters));
+    }
+
+    /**
+     * Returns a Builder instance used to create an InternalRequestTemplate
+     *
+     * @return a new builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Create a request that calls the Servlet or Script resolved for the
+     *  supplied Resource, the template's path and resource types are not used
+     *  as the Resource provides them.
+     */
+    public JakartaServletInternalRequest newServletRequest(
+            @NotNull ServletResolver servletResolver, @NotNull Resource resource) {
+        final JakartaServletInternalRequest result = new JakartaServletInternalRequest(servletResolver, resource);
+        result.applyTemplate(this);
+        return result;
+    }
+
+    /** Create a request that uses the SlingRequestProcessor, with the template's path.
+     *
+     *  @throws IllegalStateException if the template has no path
+     */
+    public JakartaSlingInternalRequest newSlingRequest(
+            @NotNull ResourceResolver resourceResolver, @NotNull SlingRequestProcessor processor) {
+        if (path == null) {
+            throw new IllegalStateException("Template has no path");
+        }
+        return newSlingRequest(resourceResolver, processor, path);
+    }
+
+    /** Create a request that uses the SlingRequestProcessor, with the supplied path */
+    public JakartaSlingInternalRequest newSlingRequest(
+            @NotNull ResourceResolver resourceResolver,
+            @NotNull SlingRequestProcessor processor,
+            @NotNull String requestPath) {
+        final JakartaSlingInternalRequest result =
+                new JakartaSlingInternalRequest(resourceResolver, processor, requestPath);
+        result.applyTemplate(this);
+        return result.withResourceType(resourceType).withResourceSuperType(resourceSuperType);
+    }
+
+    String getSelectorString() {
+        return selectorString;
+    }
+
+    String getExtension() {
+        return extension;
+    }
+
+    String getRequestMethod() {
+        return requestMethod;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: %s P=%s S=%s EXT=%s RT=%s(%s)",
+                getClass().getSimpleName(),
+                requestMethod,
+                path,
+                selectorString,
+                extension,
+                resourceType,
+                resourceSuperType);
+    }
+
+    public static class Builder {
+        private String path;
+        private String selectorString;
+        private String extension;
+        private String requestMethod = BaseInternalRequest.DEFAULT_METHOD;
+        private String contentType;
+        private String resourceType;
+        private String resourceSuperType;
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        /** Set the path used by {@link InternalRequestTemplate#newSlingRequest(ResourceResolver, SlingRequestProcessor)} */
+        public Builder withPath(String path) {
+            this.path = path;
+            return this;
+        }
+
+        /** @see BaseInternalRequest#withSelectors(String...) */
+        public Builder withSelectors(String... selectors) {
+            this.selectorString = selectors == null ? null : String.join(".", selectors);
+            return this;
+        }
+
+        /** @see BaseInternalRequest#withExtension(String) */
+        public Builder withExtension(String extension) {
+            this.extension = extension;
+            return this;
+        }
+
+        /** @see BaseInternalRequest#withRequestMethod(String) */
+        public Builder withRequestMethod(@NotNull String method) {
+            this.requestMethod = method.toUpperCase();
+            return this;
+        }
+
+        /** @see BaseInternalRequest#withContentType(String) */
+        public Builder withContentType(String contentType) {
+            this.contentType = contentType;
+            return this;
+        }
+
+        /** @see JakartaSlingInternalRequest#withResourceType(String) */
+        public Builder withResourceType(String resourceType) {
+            this.resourceType = resourceType;
+            return this;
+        }
+
+        /** @see JakartaSlingInternalRequest#withResourceSuperType(String) */
+        public Builder withResourceSuperType(String resourceSuperType) {
+            this.resourceSuperType = resourceSuperType;
+            return this;
+        }
+
+        /** @see BaseInternalRequest#withParameter(String, Object) */
+        public Builder withParameter(String key, Object value) {
+            if (key == null || value == null) {
+                throw new IllegalArgumentException("Null key or value");
+            }
+            parameters.put(key, value);
+            return this;
+        }
+
+        /** @see BaseInternalRequest#withParameters(Map) */
+        public Builder withParameters(Map<String, Object> additionalParameters) {
+            if (additionalParameters != null) {
+                parameters.putAll(additionalParameters);
+            }
+            return this;
+        }
+
+        public InternalRequestTemplate build() {
+            return new InternalRequestTemplate(this);
+        }
+    }
+}
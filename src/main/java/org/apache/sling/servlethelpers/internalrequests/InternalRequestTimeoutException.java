@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/** Thrown when an internal request does not complete within the
+ *  duration set by {@link BaseInternalRequest#withTimeout(Duration)}.
+ */
+public class InternalRequestTimeoutException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Duration timeout;
+
+    public InternalRequestTimeoutException(String requestInfo, Duration timeout) {
+        super("Internal request timed out after " + timeout.toMillis() + " msec: " + requestInfo);
+        this.timeout = timeout;
+    }
+
+    /** @return the timeout that expired */
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** Stores the responses of internal requests, so that repeated
+ *  idempotent requests do not need to execute their Servlets or
+ *  Scripts again, see {@link BaseInternalRequest#withResponseCache}.
+ *
+ *  Only GET and HEAD requests without a body are cached, and only if
+ *  their response status is 2xx. Keys are built from the request method,
+ *  path, selectors, extension, resource type, parameters and the
+ *  optional scope set by {@link BaseInternalRequest#withCacheScope}.
+ *
+ *  Implementations must be thread-safe, {@link LruInternalResponseCache}
+ *  is the default one.
+ */
+public interface InternalResponseCache {
+
+    /** @return the cached response for the supplied key, or null if there's none */
+    @Nullable
+    CachedResponse get(@NotNull String key);
+
+    /** Store the supplied response under the supplied key */
+    void put(@NotNull String key, @NotNull CachedResponse response);
+
+    /** Remove all entries */
+    void invalidate();
+}
@@ -20,8 +20,18 @@ package org.apache.sling.servlethelpers.internalrequests;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletResponse;
@@ -46,6 +56,7 @@ import org.slf4j.MDC;
 public abstract class JakartaInternalRequest extends BaseInternalRequest {
     private MockSlingJakartaHttpServletRequest request;
     private MockSlingJakartaHttpServletResponse response;
+    private OutputStream responseOutput;
 
     /** Clients use subclasses of this one  */
     protected JakartaInternalRequest(@NotNull ResourceResolver resourceResolver, @NotNull String path) {
@@ -67,6 +78,16 @@ public abstract class JakartaInternalRequest extends BaseInternalRequest {
         return (JakartaInternalRequest) super.withBody(bodyContent);
     }
 
+    @Override
+    public JakartaInternalRequest withBodyStream(InputStream bodyContent, long length) {
+        return (JakartaInternalRequest) super.withBodyStream(bodyContent, length);
+    }
+
+    @Override
+    public JakartaInternalRequest withBodyBuffer(ByteBuffer bodyContent) {
+        return (JakartaInternalRequest) super.withBodyBuffer(bodyContent);
+    }
+
     @Override
     public JakartaInternalRequest withSelectors(String... selectors) {
         return (JakartaInternalRequest) super.withSelectors(selectors);
@@ -87,6 +108,66 @@ public abstract class JakartaInternalRequest extends BaseInternalRequest {
         return (JakartaInternalRequest) super.withParameters(additionalParameters);
     }
 
+    @Override
+    public JakartaInternalRequest withTimeout(Duration timeout) {
+        return (JakartaInternalRequest) super.withTimeout(timeout);
+    }
+
+    @Override
+    public JakartaInternalRequest withResponseCache(InternalResponseCache cache) {
+        return (JakartaInternalRequest) super.withResponseCache(cache);
+    }
+
+    @Override
+    public JakartaInternalRequest withCacheScope(String scope) {
+        return (JakartaInternalRequest) super.withCacheScope(scope);
+    }
+
+    @Override
+    public JakartaInternalRequest withCacheBypass(boolean bypass) {
+        return (JakartaInternalRequest) super.withCacheBypass(bypass);
+    }
+
+    @Override
+    public JakartaInternalRequest withSingleFlight(boolean singleFlight) {
+        return (JakartaInternalRequest) super.withSingleFlight(singleFlight);
+    }
+
+    @Override
+    public JakartaInternalRequest withAdapterCache(boolean adapterCache) {
+        return (JakartaInternalRequest) super.withAdapterCache(adapterCache);
+    }
+
+    /** Stream the response body to the supplied OutputStream while the request
+     *  executes, instead of buffering it. The response status can only be checked
+     *  after execution, once the body has been written, and the
+     *  {@link #getResponseAsString()} method cannot be used in this mode.
+     */
+    public JakartaInternalRequest withResponseOutput(@NotNull OutputStream output) {
+        checkNotNull(OutputStream.class, output);
+        this.responseOutput = output;
+        return this;
+    }
+
+    /** Stream the response body to the supplied channel while the request
+     *  executes, see {@link #withResponseOutput(OutputStream)}.
+     */
+    public JakartaInternalRequest withResponseOutput(@NotNull WritableByteChannel channel) {
+        checkNotNull(WritableByteChannel.class, channel);
+        return withResponseOutput(Channels.newOutputStream(channel));
+    }
+
+    /** Pass the response body to the supplied consumer while the request
+     *  executes, see {@link #withResponseOutput(OutputStream)}.
+     *
+     *  The supplied buffers are read-only views of the servlet's own buffers,
+     *  they are only valid until the consumer returns.
+     */
+    public JakartaInternalRequest withResponseOutput(@NotNull Consumer<ByteBuffer> consumer) {
+        checkNotNull(Consumer.class, consumer);
+        return withResponseOutput(new ByteBufferConsumerOutputStream(consumer));
+    }
+
     /** Execute the internal request. Can be called right after
      *  creating it, if no options need to be set.
      *
@@ -110,29 +191,86 @@ public abstract class JakartaInternalRequest extends BaseInternalRequest {
 
             @Override
             public BufferedReader getReader() {
-                if (bodyReader != null) {
-                    return new BufferedReader(bodyReader);
-                } else {
-                    return super.getReader();
-                }
+                final BufferedReader reader = getBodyReader();
+                return reader != null ? reader : super.getReader();
             }
         };
         request.setMethod(requestMethod);
         request.setContentType(contentType);
         request.setResource(resource);
         request.setParameterMap(parameters);
+        request.setAdapterCacheEnabled(adapterCache);
+        setRequestBody(request);
 
         response = new MockSlingJakartaHttpServletResponse();
+        final GatedOutputStream gate = responseOutput == null ? null : new GatedOutputStream(responseOutput);
+        if (gate != null) {
+            response.setOutputTarget(gate);
+        }
 
         MDC.put(MDC_KEY, toString());
+        boolean completed = false;
         try {
-            delegateExecute(request, response, resourceResolver);
+            // streamed responses are neither cached nor shared
+            executeDelegate(
+                    target -> delegateExecute(request, target, resourceResolver), response, responseOutput != null);
+            completed = true;
         } catch (ServletException sx) {
             throw new IOException("ServletException in execute()", sx);
+        } finally {
+            if (gate != null && !completed) {
+                // the execution might have been abandoned after a timeout, it must
+                // not write to the caller's output once we return, apart from
+                // finishing a write that it has already started
+                gate.shut();
+            }
+        }
+        if (responseOutput != null) {
+            // push what the servlet left in its writer to the output
+            response.flushBuffer();
         }
         return this;
     }
 
+    /** Execute the internal request asynchronously, using the default executor
+     *  which uses virtual threads if the Java runtime supports them.
+     *
+     *  @see #executeAsync(Executor)
+     */
+    public CompletableFuture<JakartaInternalRequest> executeAsync() {
+        return executeAsync(InternalRequestExecutors.defaultExecutor());
+    }
+
+    /** Execute the internal request asynchronously using the supplied Executor.
+     *
+     *  The returned future completes with this request once it has been executed,
+     *  its status is then checked in the same way as after {@link #execute()}. If
+     *  execution fails the future completes exceptionally with the IOException
+     *  that {@link #execute()} would throw.
+     *
+     *  The caller's slf4j MDC, including the {@link #MDC_KEY} value, is made available
+     *  to the thread that executes the request. Note that the ResourceResolver is not
+     *  thread-safe, concurrent requests should use their own ResourceResolver or make
+     *  sure that the servlets they call only read from it.
+     */
+    public CompletableFuture<JakartaInternalRequest> executeAsync(@NotNull Executor executor) {
+        checkNotNull(Executor.class, executor);
+        final Map<String, String> callerContext = MDC.getCopyOfContextMap();
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    final Map<String, String> workerContext = MDC.getCopyOfContextMap();
+                    setMdcContext(callerContext);
+                    try {
+                        return execute();
+                    } catch (IOException ioe) {
+                        throw new CompletionException(ioe);
+                    } finally {
+                        setMdcContext(workerContext);
+                    }
+                },
+                executor);
+    }
+
     /** Execute the supplied Request */
     protected abstract void delegateExecute(
             SlingJakartaHttpServletRequest request,
@@ -206,7 +344,74 @@ public abstract class JakartaInternalRequest extends BaseInternalRequest {
      */
     public String getResponseAsString() throws IOException {
         assertRequestExecuted();
+        if (responseOutput != null) {
+            throw new IOException("Response body was streamed to the output supplied by withResponseOutput");
+        }
         maybeCheckOkStatus();
         return response.getOutputAsString();
     }
+
+    /** Passes writes to the caller's output until shut, after which
+     *  they are rejected. Shutting does not wait for writers, so a single
+     *  write that is already in progress when {@link #shut} is called
+     *  may still reach the output.
+     */
+    private static class GatedOutputStream extends OutputStream {
+        private final OutputStream target;
+        private volatile boolean shut;
+
+        GatedOutputStream(OutputStream target) {
+            this.target = target;
+        }
+
+        void shut() {
+            shut = true;
+        }
+
+        private void checkOpen() throws IOException {
+            if (shut) {
+                throw new IOException("Response output is shut, the internal request was abandoned");
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkOpen();
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkOpen();
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!shut) {
+                target.flush();
+            }
+        }
+    }
+
+    /** Adapts a ByteBuffer consumer to an OutputStream, without copying the written bytes */
+    private static class ByteBufferConsumerOutputStream extends OutputStream {
+        private final Consumer<ByteBuffer> consumer;
+
+        ByteBufferConsumerOutputStream(Consumer<ByteBuffer> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void write(int b) {
+            consumer.accept(ByteBuffer.wrap(new byte[] {(byte) b}).asReadOnlyBuffer());
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (len > 0) {
+                consumer.accept(ByteBuffer.wrap(b, off, len).asReadOnlyBuffer());
+            }
+        }
+    }
 }
@@ -44,6 +44,7 @@ import org.jetbrains.annotations.NotNull;
 public class JakartaServletInternalRequest extends JakartaInternalRequest {
     protected final ServletResolver servletResolver;
     private final Resource resource;
+    private ServletResolutionCache servletResolutionCache;
 
     /** Setup an internal request to the supplied Resource, using
      *  the supplied servlet/script resolver.
@@ -56,6 +57,15 @@ public class JakartaServletInternalRequest extends JakartaInternalRequest {
         this.servletResolver = servletResolver;
     }
 
+    /** Use the supplied cache to avoid resolving the Servlet for every execution.
+     *  The cache can be shared by requests that run in parallel.
+     */
+    public JakartaServletInternalRequest withServletResolutionCache(@NotNull ServletResolutionCache cache) {
+        checkNotNull(ServletResolutionCache.class, cache);
+        this.servletResolutionCache = cache;
+        return this;
+    }
+
     /** Return essential request info, used to set the logging MDC  */
     public String toString() {
         return String.format(
@@ -69,6 +79,11 @@ public class JakartaServletInternalRequest extends JakartaInternalRequest {
                 resource.getResourceSuperType());
     }
 
+    @Override
+    protected Object getExecutionTarget() {
+        return servletResolver;
+    }
+
     @Override
     protected Resource getExecutionResource() {
         return resource;
@@ -80,7 +95,9 @@ public class JakartaServletInternalRequest extends JakartaInternalRequest {
             SlingJakartaHttpServletResponse response,
             ResourceResolver resourceResolver)
             throws ServletException, IOException {
-        final Servlet s = servletResolver.resolve(request);
+        final Servlet s = servletResolutionCache == null
+                ? servletResolver.resolve(request)
+                : servletResolutionCache.resolve(servletResolver, request);
         log.debug("ServletResolver provides servlet '{}'", s);
         if (s == null) {
             response.sendError(
@@ -92,6 +92,11 @@ public class JakartaSlingInternalRequest extends JakartaInternalRequest {
         processor.processRequest(request, response, resourceResolver);
     }
 
+    @Override
+    protected Object getExecutionTarget() {
+        return processor;
+    }
+
     @Override
     protected Resource getExecutionResource() {
         return new ServletResolutionResource(resourceResolver, path, resourceType, resourceSuperType);
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** Default {@link InternalResponseCache}, which keeps up to a maximum number
+ *  of entries for a limited time. When the cache is full the least recently
+ *  used entry is evicted.
+ */
+public class LruInternalResponseCache implements InternalResponseCache {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(10);
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private record Entry(CachedResponse response, long expiresAt) {}
+
+    /** Create a cache with {@link #DEFAULT_MAX_SIZE} entries and a {@link #DEFAULT_TTL} time to live */
+    public LruInternalResponseCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL);
+    }
+
+    /** Create a cache with the supplied maximum number of entries and time to live */
+    public LruInternalResponseCache(int maxSize, @NotNull Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    LruInternalResponseCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1: " + maxSize);
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive: " + ttl);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                final boolean evict = size() > LruInternalResponseCache.this.maxSize;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+    }
+
+    @Override
+    @Nullable
+    public CachedResponse get(@NotNull String key) {
+        final long now = nanoClock.getAsLong();
+        synchronized (entries) {
+            final Entry e = entries.get(key);
+            if (e != null && now - e.expiresAt() < 0) {
+                hits.increment();
+                return e.response();
+            }
+            if (e != null) {
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void put(@NotNull String key, @NotNull CachedResponse response) {
+        final Entry e = new Entry(response, nanoClock.getAsLong() + ttlNanos);
+        synchronized (entries) {
+            entries.put(key, e);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /** Remove the entries whose time to live has expired, which
+     *  otherwise happens only when they are looked up or evicted.
+     */
+    public void purgeExpired() {
+        final long now = nanoClock.getAsLong();
+        synchronized (entries) {
+            final Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().expiresAt() >= 0) {
+                    it.remove();
+                    expirations.increment();
+                }
+            }
+        }
+    }
+
+    /** @return the number of lookups served from the cache */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** @return the number of lookups that did not find a valid entry */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** @return the number of entries removed to respect the maximum size */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /** @return the number of entries removed because their time to live expired */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /** @return the current number of entries, including expired ones that have not been removed yet */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+
+/** InputStream that encodes the characters of a Reader as they are read,
+ *  so that a Reader body can also be consumed as bytes without copying
+ *  it first.
+ */
+final class ReaderInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Reader reader;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private boolean endOfInput;
+    private boolean flushed;
+
+    ReaderInputStream(Reader reader, Charset charset) {
+        this.reader = reader;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(BUFFER_SIZE);
+        this.chars.flip();
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(BUFFER_SIZE * (double) encoder.maxBytesPerChar()));
+        this.bytes.flip();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!bytes.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return bytes.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!bytes.hasRemaining() && !fill()) {
+            return -1;
+        }
+        final int n = Math.min(len, bytes.remaining());
+        bytes.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return bytes.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /** Encode more characters into the byte buffer
+     *  @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        bytes.clear();
+        while (bytes.position() == 0 && !flushed) {
+            if (!endOfInput) {
+                // keeps an incomplete surrogate pair, if any, for the next round
+                chars.compact();
+                endOfInput = reader.read(chars) < 0;
+                chars.flip();
+            }
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+                encoder.flush(bytes);
+                flushed = true;
+            }
+        }
+        bytes.flip();
+        return bytes.hasRemaining();
+    }
+}
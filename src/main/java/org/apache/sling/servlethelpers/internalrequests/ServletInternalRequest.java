@@ -73,6 +73,11 @@ public class ServletInternalRequest extends InternalRequest {
                 resource.getResourceSuperType());
     }
 
+    @Override
+    protected Object getExecutionTarget() {
+        return servletResolver;
+    }
+
     @Override
     protected Resource getExecutionResource() {
         return resource;
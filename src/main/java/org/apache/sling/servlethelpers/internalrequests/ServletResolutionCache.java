@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.servlet.Servlet;
+import org.apache.sling.api.SlingJakartaHttpServletRequest;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.servlets.ServletResolver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Bounded, thread-safe cache of the Servlets resolved for
+ *  {@link JakartaServletInternalRequest}s, see
+ *  {@link JakartaServletInternalRequest#withServletResolutionCache}.
+ *
+ *  Entries are keyed by ServletResolver, resource type, resource super type,
+ *  selectors, extension and request method. The resource path is not part of
+ *  the key, so this cache must not be used with servlets that are registered
+ *  for specific paths.
+ *
+ *  When running in an OSGi framework the cache is invalidated when Servlet
+ *  services are registered, modified or unregistered, until {@link #close()}
+ *  is called. Otherwise use the {@link #invalidate()} methods when servlets
+ *  or scripts change.
+ */
+public class ServletResolutionCache implements Closeable {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final int maxSize;
+    private final Map<Key, Servlet> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Closeable serviceListener;
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private record Key(
+            ServletResolver resolver,
+            String resourceType,
+            String resourceSuperType,
+            String selectors,
+            String extension,
+            String method) {}
+
+    /** Create a cache with {@link #DEFAULT_MAX_SIZE} entries */
+    public ServletResolutionCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /** Create a cache with the supplied maximum number of entries */
+    public ServletResolutionCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.serviceListener = registerServiceListener();
+    }
+
+    private Closeable registerServiceListener() {
+        try {
+            return ServletServiceListener.register(this);
+        } catch (NoClassDefFoundError notOsgi) {
+            log.debug("OSGi framework classes not available, cache won't track Servlet services");
+            return null;
+        }
+    }
+
+    /** Resolve the Servlet for the supplied request, using the cache if possible */
+    @Nullable
+    Servlet resolve(@NotNull ServletResolver resolver, @NotNull SlingJakartaHttpServletRequest request) {
+        final Key key = keyOf(resolver, request);
+        Servlet result = cache.get(key);
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+        misses.increment();
+        result = resolver.resolve(request);
+        if (result != null) {
+            cache.put(key, result);
+            evictIfNeeded();
+        }
+        return result;
+    }
+
+    private static Key keyOf(ServletResolver resolver, SlingJakartaHttpServletRequest request) {
+        final Resource resource = request.getResource();
+        final RequestPathInfo rpi = request.getRequestPathInfo();
+        return new Key(
+                resolver,
+                resource == null ? null : resource.getResourceType(),
+                resource == null ? null : resource.getResourceSuperType(),
+                rpi.getSelectorString(),
+                rpi.getExtension(),
+                request.getMethod());
+    }
+
+    private void evictIfNeeded() {
+        // entries are evicted in no particular order, the goal is only to bound the size
+        final Iterator<Key> it = cache.keySet().iterator();
+        while (cache.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /** Remove all entries */
+    public void invalidate() {
+        cache.clear();
+        log.debug("Servlet resolution cache invalidated");
+    }
+
+    /** Remove the entries that have the supplied resource type
+     *  as their resource type or resource super type.
+     */
+    public void invalidate(@NotNull String resourceType) {
+        cache.keySet()
+                .removeIf(k -> Objects.equals(resourceType, k.resourceType())
+                        || Objects.equals(resourceType, k.resourceSuperType()));
+    }
+
+    /** @return the number of resolutions served from the cache */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** @return the number of resolutions that called the ServletResolver */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** @return the current number of entries */
+    public int size() {
+        return cache.size();
+    }
+
+    /** Stop tracking Servlet services, if running in an OSGi framework */
+    @Override
+    public void close() {
+        if (serviceListener != null) {
+            try {
+                serviceListener.close();
+            } catch (Exception e) {
+                log.debug("Failed to remove service listener", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.Closeable;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+
+/** Invalidates a {@link ServletResolutionCache} when Servlet services change.
+ *  Kept separate from the cache so that the OSGi classes are only loaded
+ *  when they are available.
+ */
+class ServletServiceListener implements ServiceListener, Closeable {
+    static final String SERVLET_FILTER = "(|(objectClass=jakarta.servlet.Servlet)(objectClass=javax.servlet.Servlet))";
+
+    private final ServletResolutionCache cache;
+    private final BundleContext bundleContext;
+
+    private ServletServiceListener(ServletResolutionCache cache, BundleContext bundleContext) {
+        this.cache = cache;
+        this.bundleContext = bundleContext;
+    }
+
+    /** @return the registered listener, or null if not running in an OSGi framework */
+    static ServletServiceListener register(ServletResolutionCache cache) {
+        final Bundle bundle = FrameworkUtil.getBundle(ServletServiceListener.class);
+        final BundleContext ctx = bundle == null ? null : bundle.getBundleContext();
+        if (ctx == null) {
+            return null;
+        }
+        final ServletServiceListener listener = new ServletServiceListener(cache, ctx);
+        try {
+            ctx.addServiceListener(listener, SERVLET_FILTER);
+        } catch (InvalidSyntaxException ise) {
+            throw new IllegalStateException("Invalid filter " + SERVLET_FILTER, ise);
+        }
+        return listener;
+    }
+
+    @Override
+    public void serviceChanged(ServiceEvent event) {
+        cache.invalidate();
+    }
+
+    @Override
+    public void close() {
+        try {
+            bundleContext.removeServiceListener(this);
+        } catch (IllegalStateException bundleStopped) {
+            // listener is gone already
+        }
+    }
+}
@@ -94,6 +94,11 @@ public class SlingInternalRequest extends InternalRequest {
         processor.processRequest(request, response, resourceResolver);
     }
 
+    @Override
+    protected Object getExecutionTarget() {
+        return processor;
+    }
+
     @Override
     protected Resource getExecutionResource() {
         return new ServletResolutionResource(resourceResolver, path, resourceType, resourceSuperType);
@@ -25,6 +25,7 @@ import org.mockito.Mockito;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  *
@@ -54,4 +55,17 @@ public class AdaptableUtilTest {
             SlingAdaptable.unsetAdapterManager(mockAdapterManager);
         }
     }
+
+    @Test
+    public void testGetAdapterManagerFollowsRegistration() {
+        AdapterManager mockAdapterManager = Mockito.mock(AdapterManager.class);
+        assertNull(AdaptableUtil.getAdapterManager());
+        try {
+            SlingAdaptable.setAdapterManager(mockAdapterManager);
+            assertSame(mockAdapterManager, AdaptableUtil.getAdapterManager());
+        } finally {
+            SlingAdaptable.unsetAdapterManager(mockAdapterManager);
+        }
+        assertNull(AdaptableUtil.getAdapterManager());
+    }
 }
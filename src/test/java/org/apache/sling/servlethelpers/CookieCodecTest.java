@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CookieCodecTest {
+
+    private static List<String> parse(String header) {
+        List<String> result = new ArrayList<>();
+        CookieCodec.parse(header, (name, value) -> result.add(name + "=" + value));
+        return result;
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(List.of("a=1", "b=2"), parse("a=1; b=2"));
+        assertEquals(List.of("a=1", "b=2"), parse(" a = 1 ;\tb=2; "));
+        assertEquals(List.of("q=quoted value"), parse("q=\"quoted value\""));
+        assertEquals(List.of("e=", "x=a=b"), parse("e=; x=a=b"));
+        assertEquals(List.of("ok=1"), parse("noequals; =novalue; ok=1;;"));
+        assertTrue(parse("").isEmpty());
+    }
+
+    @Test
+    public void testFormatSetCookie() {
+        assertEquals("a=1", CookieCodec.formatSetCookie(new Cookie("a", "1"), 0));
+
+        Cookie cookie = new Cookie("id", "42");
+        cookie.setDomain("example.com");
+        cookie.setSecure(true);
+        cookie.setMaxAge(60);
+        cookie.setAttribute("SameSite", "Strict");
+        String header = CookieCodec.formatSetCookie(cookie, 1_000_000_000_000L);
+        assertTrue(header, header.startsWith("id=42; Expires=Sun, 9 Sep 2001 01:47:40 GMT; "));
+        assertTrue(header, header.contains("; Domain=example.com"));
+        assertTrue(header, header.contains("; Max-Age=60"));
+        assertTrue(header, header.contains("; Secure"));
+        assertTrue(header, header.contains("; SameSite=Strict"));
+    }
+}
@@ -30,6 +30,8 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -197,4 +199,74 @@ public class HeaderSupportTest {
         assertEquals("one", e.nextElement());
         assertEquals("two", e.nextElement());
     }
+
+    @Test
+    public void testCaseInsensitiveNames() {
+        headerSupport.addHeader("Content-Type", "text/plain");
+        headerSupport.addHeader("content-type", "text/html");
+        assertTrue(headerSupport.containsHeader("CONTENT-TYPE"));
+        assertEquals("text/plain", headerSupport.getHeader("content-TYPE"));
+        assertEquals(List.of("text/plain", "text/html"), List.copyOf(headerSupport.getHeaders("Content-Type")));
+        assertEquals(List.of("Content-Type"), List.copyOf(headerSupport.getHeaderNames()));
+
+        headerSupport.setHeader("CONTENT-TYPE", "text/css");
+        assertEquals(List.of("text/css"), List.copyOf(headerSupport.getHeaders("content-type")));
+    }
+
+    @Test
+    public void testNoPartialNameMatch() {
+        headerSupport.addHeader("X-Forwarded-For", "10.0.0.1");
+        headerSupport.addHeader("Forwarded", "for=10.0.0.2");
+        assertEquals("for=10.0.0.2", headerSupport.getHeader("Forwarded"));
+        assertEquals(1, headerSupport.getHeaders("forwarded").size());
+        assertFalse(headerSupport.containsHeader("For"));
+
+        headerSupport.setHeader("Forwarded", "for=10.0.0.3");
+        assertEquals("10.0.0.1", headerSupport.getHeader("X-Forwarded-For"));
+    }
+
+    @Test
+    public void testInsertionOrder() {
+        headerSupport.addHeader("c", "1");
+        headerSupport.addHeader("a", "2");
+        headerSupport.addHeader("b", "3");
+        headerSupport.addHeader("A", "4");
+        assertEquals(List.of("c", "a", "b"), List.copyOf(headerSupport.getHeaderNames()));
+    }
+
+    @Test
+    public void testReadOnlySnapshots() {
+        headerSupport.addHeader("name1", "value1");
+        final Collection<String> names = headerSupport.getHeaderNames();
+        final Collection<String> values = headerSupport.getHeaders("name1");
+        // unchanged headers do not rebuild the snapshots
+        assertSame(names, headerSupport.getHeaderNames());
+        assertSame(values, headerSupport.getHeaders("name1"));
+
+        headerSupport.addHeader("name1", "value2");
+        headerSupport.addHeader("name2", "value3");
+        assertEquals(1, values.size());
+        assertEquals(1, names.size());
+        assertEquals(List.of("value1", "value2"), List.copyOf(headerSupport.getHeaders("name1")));
+        assertEquals(List.of("name1", "name2"), List.copyOf(headerSupport.getHeaderNames()));
+
+        assertThrows(UnsupportedOperationException.class, () -> values.add("other"));
+        assertThrows(UnsupportedOperationException.class, () -> names.clear());
+    }
+
+    @Test
+    public void testChangeHeadersWhileIterating() {
+        headerSupport.addHeader("name1", "value1");
+        headerSupport.addHeader("name2", "value2");
+        for (String name : headerSupport.getHeaderNames()) {
+            headerSupport.setHeader(name, "changed");
+            headerSupport.addHeader(name + "-copy", "added");
+        }
+        for (String value : headerSupport.getHeaders("name1")) {
+            headerSupport.addHeader("name1", value + "-again");
+        }
+        assertEquals(
+                List.of("name1", "name1-copy", "name2", "name2-copy"), List.copyOf(headerSupport.getHeaderNames()));
+        assertEquals(List.of("changed", "changed-again"), List.copyOf(headerSupport.getHeaders("name1")));
+    }
 }
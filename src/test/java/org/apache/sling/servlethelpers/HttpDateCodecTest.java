@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class HttpDateCodecTest {
+
+    private static final String DATE = "Tue, 3 Jun 2008 11:05:30 GMT";
+    private static final long DATE_MILLIS = ZonedDateTime.of(2008, 6, 3, 11, 5, 30, 0, ZoneOffset.UTC)
+            .toInstant()
+            .toEpochMilli();
+
+    @Test
+    public void testFormat() {
+        assertEquals(DATE, HttpDateCodec.format(DATE_MILLIS));
+        assertEquals(DATE, HttpDateCodec.format(DATE_MILLIS + 999));
+        assertEquals("Tue, 3 Jun 2008 11:05:31 GMT", HttpDateCodec.format(DATE_MILLIS + 1000));
+    }
+
+    @Test
+    public void testFormatMatchesDateTimeFormatter() {
+        final long now = System.currentTimeMillis();
+        assertEquals(
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                        ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneOffset.UTC)),
+                HttpDateCodec.format(now));
+    }
+
+    @Test
+    public void testSameSecondIsCached() {
+        final long now = System.currentTimeMillis() / 1000 * 1000;
+        assertSame(HttpDateCodec.format(now), HttpDateCodec.format(now + 500));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(DATE_MILLIS, HttpDateCodec.parse(DATE));
+        // cached value
+        assertEquals(DATE_MILLIS, HttpDateCodec.parse(DATE));
+        assertEquals(DATE_MILLIS, HttpDateCodec.parse("Tue, 03 Jun 2008 13:05:30 +0200"));
+    }
+
+    @Test
+    public void testParseInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> HttpDateCodec.parse("yesterday"));
+    }
+
+    @Test
+    public void testParseCacheIsBounded() {
+        for (int i = 0; i < HttpDateCodec.MAX_PARSE_CACHE_SIZE * 2; i++) {
+            HttpDateCodec.parse(HttpDateCodec.format(DATE_MILLIS + i * 1000L));
+        }
+        assertTrue(HttpDateCodec.parseCacheSize() <= HttpDateCodec.MAX_PARSE_CACHE_SIZE);
+    }
+}
@@ -18,6 +18,17 @@
  */
 package org.apache.sling.servlethelpers;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.Test.None;
@@ -25,6 +36,8 @@ import org.junit.Test.None;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 public class MockJakartaHttpSessionTest {
@@ -92,4 +105,71 @@ public class MockJakartaHttpSessionTest {
         httpSession.setMaxInactiveInterval(123);
         assertEquals(123, httpSession.getMaxInactiveInterval());
     }
+
+    @Test
+    public void testIdsAreUnique() {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String id = new MockJakartaHttpSession().getId();
+            assertEquals(4, UUID.fromString(id).version());
+            assertTrue(ids.add(id));
+        }
+    }
+
+    @Test
+    public void testNullAttributeRemoves() {
+        httpSession.setAttribute("attr1", "value1");
+        httpSession.setAttribute("attr1", null);
+        assertNull(httpSession.getAttribute("attr1"));
+        assertFalse(httpSession.getAttributeNames().hasMoreElements());
+    }
+
+    @Test
+    public void testConcurrentAttributes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        httpSession.setAttribute(thread + "-" + i, i);
+                        httpSession.getAttributeNames();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(4000, Collections.list(httpSession.getAttributeNames()).size());
+    }
+
+    @Test
+    public void testAccessUpdatesLastAccessedTime() throws InterruptedException {
+        long created = httpSession.getCreationTime();
+        assertEquals(created, httpSession.getLastAccessedTime());
+        Thread.sleep(5);
+        httpSession.access();
+        assertTrue(httpSession.getLastAccessedTime() > created);
+    }
+
+    @Test
+    public void testExpiry() {
+        httpSession.setMaxInactiveInterval(10);
+        assertFalse(httpSession.expireIfInactive(httpSession.getLastAccessedTime() + 10_000));
+        assertTrue(httpSession.expireIfInactive(httpSession.getLastAccessedTime() + 10_001));
+        assertTrue(httpSession.isInvalidated());
+        assertThrows(IllegalStateException.class, () -> httpSession.getAttribute("attr1"));
+        assertThrows(IllegalStateException.class, () -> httpSession.invalidate());
+    }
+
+    @Test
+    public void testNoExpiryWithoutInterval() {
+        httpSession.setMaxInactiveInterval(0);
+        assertFalse(httpSession.expireIfInactive(Long.MAX_VALUE));
+        assertFalse(httpSession.isInvalidated());
+    }
 }
@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EventListener;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.HttpSessionAttributeListener;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionIdListener;
+import jakarta.servlet.http.HttpSessionListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class MockSessionManagerTest {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private MockSessionManager manager;
+
+    @Before
+    public void setUp() {
+        manager = new MockSessionManager(3, Duration.ofSeconds(60), Runnable::run);
+        manager.addListener(new RecordingListener());
+    }
+
+    @Test
+    public void testCreateAndLookup() {
+        MockJakartaHttpSession session = manager.createSession();
+        assertSame(session, manager.getSession(session.getId()));
+        assertEquals(60, session.getMaxInactiveInterval());
+        assertNull(manager.getSession("unknown"));
+        assertNull(manager.getSession(null));
+        assertEquals(List.of("created"), events);
+    }
+
+    @Test
+    public void testInvalidateRemovesSession() {
+        MockJakartaHttpSession session = manager.createSession();
+        session.invalidate();
+        assertNull(manager.getSession(session.getId()));
+        assertEquals(0, manager.size());
+        assertEquals(List.of("created", "destroyed"), events);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSessionIsEvicted() {
+        MockJakartaHttpSession first = manager.createSession();
+        MockJakartaHttpSession second = manager.createSession();
+        MockJakartaHttpSession third = manager.createSession();
+        // makes the second session the least recently used
+        manager.getSession(first.getId());
+        MockJakartaHttpSession fourth = manager.createSession();
+
+        assertEquals(3, manager.size());
+        assertTrue(second.isInvalidated());
+        assertFalse(first.isInvalidated());
+        assertFalse(third.isInvalidated());
+        assertSame(fourth, manager.getSession(fourth.getId()));
+        assertEquals(List.of("created", "created", "created", "created", "destroyed"), events);
+    }
+
+    @Test
+    public void testExpiredSessionsArePurged() {
+        MockJakartaHttpSession session = manager.createSession();
+        assertEquals(0, manager.purgeExpired(System.currentTimeMillis()));
+        assertEquals(1, manager.purgeExpired(System.currentTimeMillis() + 61_000));
+        assertTrue(session.isInvalidated());
+        assertEquals(0, manager.size());
+    }
+
+    @Test
+    public void testSweepDoesNotWaitForListeners() throws InterruptedException {
+        manager = new MockSessionManager(3, Duration.ofSeconds(60));
+        final CountDownLatch release = new CountDownLatch(1);
+        manager.addListener(new HttpSessionListener() {
+            @Override
+            public void sessionDestroyed(HttpSessionEvent se) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        MockJakartaHttpSession first = manager.createSession();
+        MockJakartaHttpSession second = manager.createSession();
+
+        assertEquals(2, manager.sweep(System.currentTimeMillis() + 61_000));
+        assertEquals(0, manager.size());
+        assertNull(manager.getSession(first.getId()));
+        assertFalse(second.isInvalidated());
+
+        release.countDown();
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (!(first.isInvalidated() && second.isInvalidated()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(first.isInvalidated());
+        assertTrue(second.isInvalidated());
+    }
+
+    @Test
+    public void testBackgroundSweeping() throws InterruptedException {
+        manager = new MockSessionManager(3, Duration.ofSeconds(1), Runnable::run);
+        manager.addListener(new RecordingListener());
+        MockJakartaHttpSession session = manager.createSession();
+        manager.startSweeping(Duration.ofMillis(20));
+        try {
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (!session.isInvalidated() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(session.isInvalidated());
+            assertEquals(List.of("created", "destroyed"), events);
+        } finally {
+            manager.stopSweeping();
+        }
+        assertThrows(IllegalArgumentException.class, () -> manager.startSweeping(Duration.ZERO));
+    }
+
+    @Test
+    public void testAttributeEvents() {
+        MockJakartaHttpSession session = manager.createSession();
+        session.setAttribute("a", "1");
+        session.setAttribute("a", "2");
+        session.removeAttribute("a");
+        session.setAttribute("b", "3");
+        session.setAttribute("b", null);
+        session.removeAttribute("unknown");
+        assertEquals(
+                List.of("created", "added a=1", "replaced a=1", "removed a=2", "added b=3", "removed b=3"), events);
+    }
+
+    @Test
+    public void testChangeSessionId() {
+        MockJakartaHttpSession session = manager.createSession();
+        String oldId = session.getId();
+        String newId = manager.changeSessionId(session);
+        assertEquals(newId, session.getId());
+        assertNull(manager.getSession(oldId));
+        assertSame(session, manager.getSession(newId));
+        assertEquals(List.of("created", "idChanged " + oldId), events);
+    }
+
+    @Test
+    public void testFailingListenerDoesNotAffectOthers() {
+        manager = new MockSessionManager(3, Duration.ofSeconds(60), Runnable::run);
+        manager.addListener(new HttpSessionListener() {
+            @Override
+            public void sessionCreated(HttpSessionEvent se) {
+                throw new IllegalStateException("failing listener");
+            }
+        });
+        manager.addListener(new RecordingListener());
+        manager.createSession();
+        assertEquals(List.of("created"), events);
+    }
+
+    @Test
+    public void testAsynchronousListeners() throws InterruptedException {
+        manager = new MockSessionManager();
+        final CountDownLatch created = new CountDownLatch(1);
+        manager.addListener(new HttpSessionListener() {
+            @Override
+            public void sessionCreated(HttpSessionEvent se) {
+                assertTrue(Thread.currentThread().getName().startsWith("sling-mock-session-events"));
+                created.countDown();
+            }
+        });
+        manager.createSession();
+        assertTrue(created.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAttributesReadableWhenDestroyed() {
+        manager = new MockSessionManager(3, Duration.ofSeconds(60), Runnable::run);
+        manager.addListener(new HttpSessionListener() {
+            @Override
+            public void sessionDestroyed(HttpSessionEvent se) {
+                events.add("destroyed " + se.getSession().getAttribute("user"));
+            }
+        });
+        MockJakartaHttpSession session = manager.createSession();
+        session.setAttribute("user", "admin");
+        session.invalidate();
+        assertTrue(session.isInvalidated());
+        assertEquals(List.of("destroyed admin"), events);
+    }
+
+    @Test
+    public void testSessionDestroyedOnInvalidatingThread() {
+        manager = new MockSessionManager();
+        manager.addListener(new HttpSessionListener() {
+            @Override
+            public void sessionDestroyed(HttpSessionEvent se) {
+                events.add(
+                        Thread.currentThread().getName() + " " + se.getSession().getAttribute("user"));
+            }
+        });
+        MockJakartaHttpSession session = manager.createSession();
+        session.setAttribute("user", "admin");
+        session.invalidate();
+        assertEquals(List.of(Thread.currentThread().getName() + " admin"), events);
+    }
+
+    @Test
+    public void testListenerInvalidatesOtherSession() {
+        manager = new MockSessionManager();
+        MockJakartaHttpSession other = manager.createSession();
+        manager.addListener(new HttpSessionListener() {
+            @Override
+            public void sessionDestroyed(HttpSessionEvent se) {
+                events.add("destroyed " + se.getSession().getId());
+                if (se.getSession() != other) {
+                    other.invalidate();
+                }
+            }
+        });
+        MockJakartaHttpSession session = manager.createSession();
+        session.invalidate();
+        assertTrue(other.isInvalidated());
+        assertEquals(List.of("destroyed " + session.getId(), "destroyed " + other.getId()), events);
+    }
+
+    @Test
+    public void testListenerInvalidatesSessionOnOtherThread() {
+        manager = new MockSessionManager();
+        MockJakartaHttpSession other = manager.createSession();
+        manager.addListener(new HttpSessionListener() {
+            @Override
+            public void sessionDestroyed(HttpSessionEvent se) {
+                if (se.getSession() != other) {
+                    CompletableFuture.runAsync(other::invalidate).join();
+                }
+            }
+        });
+        manager.createSession().invalidate();
+        assertTrue(other.isInvalidated());
+    }
+
+    @Test
+    public void testSessionsUsedConcurrently() throws Exception {
+        manager = new MockSessionManager(50, Duration.ofSeconds(60), Runnable::run);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        MockJakartaHttpSession session = manager.createSession();
+                        // other threads can create enough sessions in between to evict it
+                        MockJakartaHttpSession found = manager.getSession(session.getId());
+                        assertTrue(found == session || session.isInvalidated());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(manager.size() <= 50);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Duration ttl = Duration.ofSeconds(1);
+        Duration tooShort = Duration.ofMillis(10);
+        assertThrows(IllegalArgumentException.class, () -> new MockSessionManager(0, ttl));
+        assertThrows(IllegalArgumentException.class, () -> new MockSessionManager(1, tooShort));
+        assertThrows(IllegalArgumentException.class, () -> manager.addListener(new EventListener() {}));
+    }
+
+    private class RecordingListener
+            implements HttpSessionListener, HttpSessionAttributeListener, HttpSessionIdListener {
+
+        @Override
+        public void sessionCreated(HttpSessionEvent se) {
+            events.add("created");
+        }
+
+        @Override
+        public void sessionDestroyed(HttpSessionEvent se) {
+            events.add("destroyed");
+        }
+
+        @Override
+        public void attributeAdded(HttpSessionBindingEvent event) {
+            events.add("added " + event.getName() + "=" + event.getValue());
+        }
+
+        @Override
+        public void attributeRemoved(HttpSessionBindingEvent event) {
+            events.add("removed " + event.getName() + "=" + event.getValue());
+        }
+
+        @Override
+        public void attributeReplaced(HttpSessionBindingEvent event) {
+            events.add("replaced " + event.getName() + "=" + event.getValue());
+        }
+
+        @Override
+        public void sessionIdChanged(HttpSessionEvent event, String oldSessionId) {
+            events.add("idChanged " + oldSessionId);
+        }
+    }
+}
@@ -492,8 +492,14 @@ public class MockSlingHttpServletRequestTest {
 
     @Test
     public void testGetInputStreamIsFinished() throws IOException {
+        assertTrue(request.getInputStream().isFinished());
+        request.setContent(new byte[] {1, 2});
         ServletInputStream inputStream = request.getInputStream();
-        assertThrows(UnsupportedOperationException.class, inputStream::isFinished);
+        assertFalse(inputStream.isFinished());
+        assertEquals(1, inputStream.read());
+        assertFalse(inputStream.isFinished());
+        assertEquals(2, inputStream.read());
+        assertTrue(inputStream.isFinished());
     }
 
     @Test
@@ -603,6 +609,24 @@ public class MockSlingHttpServletRequestTest {
         assertNotEquals(result1, result2);
     }
 
+    @Test
+    public void testAdaptToWithAdapterCache() {
+        when(adapterManager.getAdapter(request, String.class))
+                .thenAnswer(invocation -> UUID.randomUUID().toString());
+        request.setAdapterCacheEnabled(true);
+
+        String result1 = request.adaptTo(String.class);
+        assertNotNull(result1);
+        assertSame(result1, request.adaptTo(String.class));
+
+        request.setResource(resource);
+        String result2 = request.adaptTo(String.class);
+        assertNotEquals(result1, result2);
+
+        request.clearAdapterCache();
+        assertNotEquals(result2, request.adaptTo(String.class));
+    }
+
     @Test
     public void testNoParts() throws IOException, ServletException {
         assertThat(request.getParts()).as("request parts").isEmpty();
@@ -677,41 +701,50 @@ public class MockSlingHttpServletRequestTest {
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingHttpServletRequest#getRequestedSessionId()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testGetRequestedSessionId() {
-        request.getRequestedSessionId();
+        assertNull(request.getRequestedSessionId());
     }
 
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingHttpServletRequest#isRequestedSessionIdFromCookie()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testIsRequestedSessionIdFromCookie() {
-        request.isRequestedSessionIdFromCookie();
+        assertFalse(request.isRequestedSessionIdFromCookie());
     }
 
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingHttpServletRequest#isRequestedSessionIdFromURL()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testIsRequestedSessionIdFromURL() {
-        request.isRequestedSessionIdFromURL();
+        assertFalse(request.isRequestedSessionIdFromURL());
     }
 
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingHttpServletRequest#isRequestedSessionIdFromUrl()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testIsRequestedSessionIdFromUrl() {
-        request.isRequestedSessionIdFromUrl();
+        assertFalse(request.isRequestedSessionIdFromUrl());
     }
 
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingHttpServletRequest#isRequestedSessionIdValid()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testIsRequestedSessionIdValid() {
-        request.isRequestedSessionIdValid();
+        assertFalse(request.isRequestedSessionIdValid());
+    }
+
+    @Test
+    public void testSessionManager() {
+        MockSessionManager manager = new MockSessionManager();
+        request.setSessionManager(manager);
+        HttpSession session = request.getSession();
+        assertEquals(1, manager.size());
+        assertNotNull(manager.getSession(session.getId()));
     }
 
     /**
@@ -845,9 +878,11 @@ public class MockSlingHttpServletRequestTest {
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingHttpServletRequest#changeSessionId()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testChangeSessionId() {
-        request.changeSessionId();
+        HttpSession session = request.getSession();
+        String oldId = session.getId();
+        assertNotEquals(oldId, request.changeSessionId());
     }
 
     /**
@@ -861,9 +896,11 @@ public class MockSlingHttpServletRequestTest {
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingHttpServletRequest#getContentLengthLong()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testGetContentLengthLong() {
-        request.getContentLengthLong();
+        assertEquals(0L, request.getContentLengthLong());
+        request.setContent(new byte[] {1, 2, 3});
+        assertEquals(3L, request.getContentLengthLong());
     }
 
     /**
@@ -45,6 +45,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
@@ -243,6 +244,19 @@ public class MockSlingHttpServletResponseTest {
         assertNotEquals(result1, result2);
     }
 
+    @Test
+    public void testAdaptToWithAdapterCache() {
+        when(adapterManager.getAdapter(response, String.class))
+                .thenAnswer(invocation -> UUID.randomUUID().toString());
+        response.setAdapterCacheEnabled(true);
+
+        String result1 = response.adaptTo(String.class);
+        assertSame(result1, response.adaptTo(String.class));
+
+        response.clearAdapterCache();
+        assertNotEquals(result1, response.adaptTo(String.class));
+    }
+
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingHttpServletResponse#setIntHeader(java.lang.String, int)}.
      */
@@ -19,21 +19,35 @@
 package org.apache.sling.servlethelpers;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
+import jakarta.servlet.MultipartConfigElement;
 import jakarta.servlet.ReadListener;
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
@@ -50,6 +64,7 @@ import org.apache.sling.api.adapter.AdapterManager;
 import org.apache.sling.api.adapter.SlingAdaptable;
 import org.apache.sling.api.request.RequestDispatcherOptions;
 import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.request.RequestParameterMap;
 import org.apache.sling.api.request.RequestProgressTracker;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -71,6 +86,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
@@ -254,6 +270,24 @@ public class MockSlingJakartaHttpServletRequestTest {
         request.setParameterMap(paramMap);
 
         assertEquals("p1=a&p2=b&p2=c&p4=&p5=22", request.getQueryString());
+
+        // derived query string only covers the parameters given to setParameterMap
+        request.addRequestParameter("p6", "x y");
+        request.addRequestParameter("p7", "file".getBytes(UTF_8), "text/plain", "f.txt");
+        assertEquals("p1=a&p2=b&p2=c&p4=&p5=22", request.getQueryString());
+        assertEquals("x y", request.getParameter("p6"));
+
+        // it is formatted lazily, even when parameters are added before the first call
+        request.setParameterMap(Map.of("q", "1"));
+        request.addRequestParameter("p6", "x y");
+        assertEquals("q=1", request.getQueryString());
+
+        // explicit query string is kept as is
+        request.setQueryString("p7=%7e");
+        assertEquals("p7=%7e", request.getQueryString());
+        assertEquals("~", request.getParameter("p7"));
+        request.addRequestParameter("p8", "z");
+        assertEquals("p7=%7e", request.getQueryString());
     }
 
     @Test
@@ -314,6 +348,21 @@ public class MockSlingJakartaHttpServletRequestTest {
         assertFalse(header2Values.hasMoreElements());
     }
 
+    @Test
+    public void testAddHeadersWhileEnumerating() {
+        request.addHeader("header1", "value1");
+        request.addHeader("header2", "value2");
+        Enumeration<String> names = request.getHeaderNames();
+        Enumeration<String> values = request.getHeaders("header1");
+        request.addHeader("header3", "value3");
+        request.addHeader("header1", "value4");
+        assertEquals("header1", names.nextElement());
+        assertEquals("header2", names.nextElement());
+        assertFalse(names.hasMoreElements());
+        assertEquals("value1", values.nextElement());
+        assertFalse(values.hasMoreElements());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testInvalidDateHeader() {
         request.addHeader("header1", "thisIsNotADate");
@@ -336,6 +385,29 @@ public class MockSlingJakartaHttpServletRequestTest {
         assertEquals("value2", cookies[1].getValue());
     }
 
+    @Test
+    public void testCookiesFromHeader() {
+        request.addHeader("Cookie", "a=1; b=\"two\"");
+        request.addHeader("cookie", "c=3;a=ignored");
+
+        assertEquals("1", request.getCookie("a").getValue());
+        assertEquals("two", request.getCookie("b").getValue());
+        Cookie[] cookies = request.getCookies();
+        assertEquals(3, cookies.length);
+        assertSame(cookies, request.getCookies());
+
+        request.addCookie(new Cookie("b", "added"));
+        Cookie[] changed = request.getCookies();
+        assertNotSame(cookies, changed);
+        assertEquals(3, changed.length);
+        assertEquals("added", request.getCookie("b").getValue());
+
+        request.setHeader("Cookie", "d=4");
+        assertNull(request.getCookie("a"));
+        assertEquals("4", request.getCookie("d").getValue());
+        assertEquals(2, request.getCookies().length);
+    }
+
     @Test
     public void testDefaultResourceBundle() {
         ResourceBundle bundle = request.getResourceBundle(Locale.US);
@@ -361,6 +433,92 @@ public class MockSlingJakartaHttpServletRequestTest {
         assertEquals("param1", ((MockRequestParameter) request.getRequestParameter("param1")).getName());
     }
 
+    @Test
+    public void testParameterViewsAreReused() {
+        request.setQueryString("param1=123&param2=a&param2=b");
+
+        final Map<String, String[]> parameterMap = request.getParameterMap();
+        final List<RequestParameter> parameterList = request.getRequestParameterList();
+        final RequestParameterMap requestParameterMap = request.getRequestParameterMap();
+        assertSame(parameterMap, request.getParameterMap());
+        assertSame(parameterList, request.getRequestParameterList());
+        assertSame(requestParameterMap, request.getRequestParameterMap());
+        assertArrayEquals(new String[] {"a", "b"}, parameterMap.get("param2"));
+        assertEquals(3, parameterList.size());
+
+        // views are rebuilt once parameters change
+        request.addRequestParameter("param3", "c");
+        assertNotSame(parameterMap, request.getParameterMap());
+        assertNotSame(parameterList, request.getRequestParameterList());
+        assertEquals("c", request.getParameterMap().get("param3")[0]);
+        assertEquals(4, request.getRequestParameterList().size());
+        assertEquals("c", requestParameterMap.getValue("param3").getString());
+
+        request.setParameterMap(Map.of("other", "value"));
+        assertEquals(Set.of("other"), request.getParameterMap().keySet());
+        assertEquals(Set.of("other"), requestParameterMap.keySet());
+    }
+
+    @Test
+    public void testParameterViewsAreReadOnly() {
+        request.addRequestParameter("param1", "value1");
+        assertThrows(UnsupportedOperationException.class, () -> request.getParameterMap()
+                .put("x", new String[0]));
+        assertThrows(UnsupportedOperationException.class, () -> request.getRequestParameterMap()
+                .remove("param1"));
+        assertThrows(UnsupportedOperationException.class, () -> request.getRequestParameterList()
+                .clear());
+
+        // the returned values array is a copy
+        request.getParameterValues("param1")[0] = "changed";
+        assertEquals("value1", request.getParameter("param1"));
+
+        // so are the arrays of the parameter map
+        request.getParameterMap().get("param1")[0] = "changed";
+        request.getParameterMap().entrySet().iterator().next().getValue()[0] = "changed";
+        assertEquals("value1", request.getParameterMap().get("param1")[0]);
+        assertArrayEquals(new String[] {"value1"}, request.getParameterValues("param1"));
+
+        // and the request parameter arrays
+        request.getRequestParameters("param1")[0] = null;
+        request.getRequestParameterMap().getValues("param1")[0] = null;
+        request.getRequestParameterMap().entrySet().iterator().next().getValue()[0] = null;
+        assertEquals("value1", request.getRequestParameters("param1")[0].getString());
+        assertEquals(
+                "value1", request.getRequestParameterMap().getValue("param1").getString());
+    }
+
+    @Test
+    public void testAddRequestParameters() {
+        request.addRequestParameter("id", "first");
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            ids.add("id" + i);
+        }
+        request.addRequestParameters("id", ids);
+        request.addRequestParameter("id", "last");
+
+        final String[] values = request.getParameterValues("id");
+        assertEquals(10002, values.length);
+        assertEquals("first", values[0]);
+        assertEquals("id9999", values[10000]);
+        assertEquals("last", values[10001]);
+        assertEquals(10002, request.getRequestParameters("id").length);
+    }
+
+    @Test
+    public void testRequestParameterArraysAreNotShared() {
+        request.addRequestParameter("param1", "a");
+        final RequestParameter[] params = request.getRequestParameters("param1");
+        assertNotSame(params, request.getRequestParameters("param1"));
+        assertNotSame(params, request.getRequestParameterMap().getValues("param1"));
+        assertArrayEquals(params, request.getRequestParameterMap().getValues("param1"));
+
+        request.addRequestParameter("param1", "b");
+        assertEquals(1, params.length);
+        assertEquals(2, request.getRequestParameters("param1").length);
+    }
+
     @Test
     public void testFormRequestParameters() throws UnsupportedEncodingException {
         request.addRequestParameter("param1", "value1");
@@ -432,6 +590,55 @@ public class MockSlingJakartaHttpServletRequestTest {
         assertArrayEquals(data, IOUtils.toByteArray(request.getInputStream()));
     }
 
+    @Test
+    public void testContentFromInputStream() throws Exception {
+        byte[] data = new byte[] {0x01, 0x02, 0x03, 0x04};
+        request.setContent(new ByteArrayInputStream(data));
+        assertEquals(-1, request.getContentLength());
+        assertEquals(-1L, request.getContentLengthLong());
+
+        request.setContent(new ByteArrayInputStream(data), data.length);
+        assertEquals(4, request.getContentLength());
+        ServletInputStream in = request.getInputStream();
+        assertEquals(4, in.available());
+        assertEquals(1, in.skip(1));
+        byte[] buffer = new byte[10];
+        assertEquals(3, in.read(buffer, 0, buffer.length));
+        assertEquals(0x04, buffer[2]);
+        assertTrue(in.isFinished());
+    }
+
+    @Test
+    public void testContentFromPath() throws Exception {
+        Path file = Files.createTempFile(getClass().getSimpleName(), ".tmp");
+        try {
+            Files.write(file, "file content".getBytes(StandardCharsets.UTF_8));
+            request.setContent(file);
+            assertEquals(12, request.getContentLength());
+            assertEquals("file content", new String(IOUtils.toByteArray(request.getInputStream()), UTF_8));
+            // the file is read again for each stream
+            assertEquals("file content", new String(IOUtils.toByteArray(request.getInputStream()), UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testContentFromByteBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap("xxbuffer".getBytes(StandardCharsets.UTF_8));
+        buffer.position(2);
+        request.setContent(buffer);
+        assertEquals(6, request.getContentLengthLong());
+        assertEquals("buffer", new String(IOUtils.toByteArray(request.getInputStream()), UTF_8));
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void testContentFromByteBufferReader() throws Exception {
+        request.setContent(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("hello", IOUtils.toString(request.getReader()));
+    }
+
     @Test
     public void testContentFromReader() throws Exception {
         Charset utf8 = Charset.forName("UTF-8");
@@ -442,6 +649,51 @@ public class MockSlingJakartaHttpServletRequestTest {
         assertEquals("hello", content);
     }
 
+    @Test
+    public void testReaderHonoursCharacterEncoding() throws Exception {
+        request.setContent("gr\u00fc\u00dfe".getBytes(StandardCharsets.ISO_8859_1));
+        request.setCharacterEncoding("ISO-8859-1");
+        assertEquals("gr\u00fc\u00dfe", IOUtils.toString(request.getReader()));
+    }
+
+    @Test
+    public void testReaderHonoursContentTypeCharset() throws Exception {
+        request.setCharacterEncoding("ISO-8859-1");
+        request.setContentType("text/plain;charset=UTF-8");
+        request.setContent("gr\u00fc\u00dfe".getBytes(StandardCharsets.UTF_8));
+        assertEquals("gr\u00fc\u00dfe", IOUtils.toString(request.getReader()));
+    }
+
+    @Test
+    public void testReaderUnsupportedCharacterEncoding() throws Exception {
+        request.setCharacterEncoding("no-such-charset");
+        request.setContent("hello".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("hello", IOUtils.toString(request.getReader()));
+    }
+
+    @Test
+    public void testReaderReplacesMalformedInput() throws Exception {
+        request.setCharacterEncoding("UTF-8");
+        request.setContent(new byte[] {'a', (byte) 0xff, 'b'});
+        assertEquals("a\ufffdb", IOUtils.toString(request.getReader()));
+    }
+
+    @Test
+    public void testReaderDecodesStreamIncrementally() throws Exception {
+        AtomicInteger bytesRead = new AtomicInteger();
+        InputStream body = new InputStream() {
+            @Override
+            public int read() {
+                return bytesRead.incrementAndGet() <= 1024 * 1024 ? 'x' : -1;
+            }
+        };
+        request.setCharacterEncoding("UTF-8");
+        request.setContent(body);
+        BufferedReader reader = request.getReader();
+        assertEquals('x', reader.read());
+        assertTrue(bytesRead.get() < 1024 * 1024);
+    }
+
     @Test
     public void testGetReaderAfterGetInputStream() {
         boolean thrown = false;
@@ -473,9 +725,15 @@ public class MockSlingJakartaHttpServletRequestTest {
     }
 
     @Test
-    public void testGetInputStreamIsFinished() {
+    public void testGetInputStreamIsFinished() throws IOException {
+        assertTrue(request.getInputStream().isFinished());
+        request.setContent(new byte[] {1, 2});
         ServletInputStream inputStream = request.getInputStream();
-        assertThrows(UnsupportedOperationException.class, inputStream::isFinished);
+        assertFalse(inputStream.isFinished());
+        assertEquals(1, inputStream.read());
+        assertFalse(inputStream.isFinished());
+        assertEquals(2, inputStream.read());
+        assertTrue(inputStream.isFinished());
     }
 
     @Test
@@ -584,6 +842,55 @@ public class MockSlingJakartaHttpServletRequestTest {
         assertNotEquals(result1, result2);
     }
 
+    @Test
+    public void testAdaptToWithAdapterCache() {
+        when(adapterManager.getAdapter(request, String.class))
+                .thenAnswer(invocation -> UUID.randomUUID().toString());
+        request.setAdapterCacheEnabled(true);
+
+        String result1 = request.adaptTo(String.class);
+        assertNotNull(result1);
+        assertSame(result1, request.adaptTo(String.class));
+
+        request.clearAdapterCache();
+        String result2 = request.adaptTo(String.class);
+        assertNotEquals(result1, result2);
+        assertSame(result2, request.adaptTo(String.class));
+
+        request.setResource(resource);
+        String result3 = request.adaptTo(String.class);
+        assertNotEquals(result2, result3);
+
+        request.setAdapterCacheEnabled(false);
+        assertNotEquals(result3, request.adaptTo(String.class));
+    }
+
+    @Test
+    public void testAdapterCacheSkipsNullResults() {
+        request.setAdapterCacheEnabled(true);
+        assertNull(request.adaptTo(Integer.class));
+        when(adapterManager.getAdapter(request, Integer.class)).thenReturn(42);
+        assertEquals(Integer.valueOf(42), request.adaptTo(Integer.class));
+    }
+
+    @Test
+    public void testAdapterCacheDroppedWithAdapterManager() {
+        when(adapterManager.getAdapter(request, String.class)).thenReturn("first");
+        request.setAdapterCacheEnabled(true);
+        assertEquals("first", request.adaptTo(String.class));
+
+        AdapterManager other = mock(AdapterManager.class);
+        when(other.getAdapter(request, String.class)).thenReturn("second");
+        SlingAdaptable.unsetAdapterManager(adapterManager);
+        SlingAdaptable.setAdapterManager(other);
+        try {
+            assertEquals("second", request.adaptTo(String.class));
+        } finally {
+            SlingAdaptable.unsetAdapterManager(other);
+            SlingAdaptable.setAdapterManager(adapterManager);
+        }
+    }
+
     @Test
     public void testNoParts() {
         assertThat(request.getParts()).as("request parts").isEmpty();
@@ -608,6 +915,156 @@ public class MockSlingJakartaHttpServletRequestTest {
         assertThat(request.getPart("log.txt")).as("part looked up by name").isNotNull();
     }
 
+    @Test
+    public void testStreamContentWithLength() throws IOException {
+        request.setContent(new ByteArrayInputStream("0123456789".getBytes(UTF_8)), 4);
+        assertEquals(4, request.getContentLength());
+        assertEquals("0123", new String(IOUtils.toByteArray(request.getInputStream()), UTF_8));
+    }
+
+    @Test
+    public void testMultipartBody() throws IOException {
+        request.setMethod("POST");
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        request.setContent(new ByteArrayInputStream(MultipartParserTest.body(
+                "title", null, "gr\u00fc\u00dfe", "upload", "log.txt", "hello, world", "title", null, "second")));
+
+        assertEquals("gr\u00fc\u00dfe", request.getParameter("title"));
+        assertArrayEquals(new String[] {"gr\u00fc\u00dfe", "second"}, request.getParameterValues("title"));
+        assertThat(request.getParts()).extracting(Part::getName).containsExactly("title", "upload", "title");
+
+        Part part = request.getPart("upload");
+        assertEquals("log.txt", part.getSubmittedFileName());
+        assertEquals(12, part.getSize());
+
+        RequestParameter file = request.getRequestParameter("upload");
+        assertFalse(file.isFormField());
+        assertEquals("log.txt", file.getFileName());
+        assertEquals("application/octet-stream", file.getContentType());
+        assertEquals(12, file.getSize());
+        assertEquals("hello, world", new String(IOUtils.toByteArray(file.getInputStream()), UTF_8));
+        assertEquals("hello, world", new String(file.get(), UTF_8));
+        assertTrue(request.getRequestParameterMap().containsKey("upload"));
+    }
+
+    @Test
+    public void testMultipartBodySetAfterReadingParameters() throws IOException {
+        assertNull(request.getParameter("secret"));
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        request.setContent(MultipartParserTest.body("secret", null, "value"));
+        assertEquals("value", request.getParameter("secret"));
+        assertEquals(1, request.getParts().size());
+    }
+
+    @Test
+    public void testMultipartBodyReplaced() throws IOException {
+        request.addRequestParameter("query", "q");
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        request.setContent(MultipartParserTest.body("field", null, "first", "upload", "a.txt", "a"));
+        assertEquals("first", request.getParameter("field"));
+        assertEquals(2, request.getParts().size());
+
+        request.setContent(MultipartParserTest.body("field", null, "second"));
+        assertArrayEquals(new String[] {"second"}, request.getParameterValues("field"));
+        assertNull(request.getParameter("upload"));
+        assertThat(request.getParts()).extracting(Part::getName).containsExactly("field");
+        assertEquals("q", request.getParameter("query"));
+
+        request.setContentType("application/octet-stream");
+        assertNull(request.getParameter("field"));
+        assertThat(request.getParts()).isEmpty();
+        assertEquals("q", request.getParameter("query"));
+    }
+
+    @Test
+    public void testMultipartBodyNotInQueryString() throws IOException {
+        request.setParameterMap(Map.of("q", "1"));
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        request.setContent(MultipartParserTest.body("secret", null, "value"));
+        assertEquals("value", request.getParameter("secret"));
+        assertEquals("q=1", request.getQueryString());
+
+        // the body is parsed again after the parameters are replaced
+        request.setParameterMap(Map.of("q", "2"));
+        assertEquals("value", request.getParameter("secret"));
+        assertEquals("q=2", request.getQueryString());
+        assertEquals(1, request.getParts().size());
+    }
+
+    @Test
+    public void testMultipartBodyLimits() throws IOException {
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        request.setContent(MultipartParserTest.body("upload", "big.bin", new byte[1000]));
+        request.setMultipartConfig(new MultipartConfigElement(null, 100, -1, 10));
+        assertThrows(IllegalStateException.class, () -> request.getParts());
+        assertThrows(IllegalStateException.class, () -> request.getParts());
+        assertNull(request.getParameter("upload"));
+
+        request.setMultipartConfig(new MultipartConfigElement(null, -1, -1, 10));
+        assertEquals(1, request.getParts().size());
+    }
+
+    @Test
+    public void testMultipartBodyTruncated() throws IOException {
+        request.addRequestParameter("query", "q");
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        byte[] body = MultipartParserTest.body("field", null, "value");
+        request.setContent(Arrays.copyOf(body, body.length - 10));
+
+        // the failure is reported again on every access to the parts
+        assertThrows(UncheckedIOException.class, () -> request.getParts());
+        assertThrows(UncheckedIOException.class, () -> request.getParts());
+        assertThrows(UncheckedIOException.class, () -> request.getPart("field"));
+
+        // while the parameters of the body are left out
+        assertNull(request.getParameter("field"));
+        assertEquals("q", request.getParameter("query"));
+        assertEquals(List.of("query"), Collections.list(request.getParameterNames()));
+
+        request.setContent(body);
+        assertEquals("value", request.getParameter("field"));
+        assertEquals(1, request.getParts().size());
+    }
+
+    @Test
+    public void testMultipartFilesDeletedWhenBodyChanges() throws IOException {
+        final Path location = Files.createTempDirectory("multipart");
+        try {
+            request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+            request.setMultipartConfig(new MultipartConfigElement(location.toString(), -1, -1, 10));
+            request.setContent(MultipartParserTest.body("upload", "big.bin", new byte[1000]));
+            assertEquals(1000, request.getPart("upload").getSize());
+            try (Stream<Path> files = Files.list(location)) {
+                assertEquals(1, files.count());
+            }
+
+            request.setContent(MultipartParserTest.body("field", null, "value"));
+            try (Stream<Path> files = Files.list(location)) {
+                assertEquals(0, files.count());
+            }
+        } finally {
+            Files.delete(location);
+        }
+    }
+
+    @Test
+    public void testMultipartBodyNotParsedAfterGetInputStream() throws IOException {
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        byte[] body = MultipartParserTest.body("field", null, "value");
+        request.setContent(body);
+        assertArrayEquals(body, IOUtils.toByteArray(request.getInputStream()));
+        assertNull(request.getParameter("field"));
+        assertThat(request.getParts()).isEmpty();
+    }
+
+    @Test
+    public void testMalformedMultipartBody() {
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        request.setContent("not multipart".getBytes(UTF_8));
+        assertNull(request.getParameter("field"));
+        assertThrows(UncheckedIOException.class, () -> request.getParts());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testInvalidPart() {
         request.addPart(null);
@@ -658,33 +1115,117 @@ public class MockSlingJakartaHttpServletRequestTest {
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest#getRequestedSessionId()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testGetRequestedSessionId() {
-        request.getRequestedSessionId();
+        assertNull(request.getRequestedSessionId());
+        request.setParameterMap(Map.of(MockSessionManager.SESSION_PARAMETER_NAME, "fromParam"));
+        assertEquals("fromParam", request.getRequestedSessionId());
+        request.addCookie(new Cookie(MockSessionManager.SESSION_COOKIE_NAME, "fromCookie"));
+        assertEquals("fromCookie", request.getRequestedSessionId());
     }
 
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest#isRequestedSessionIdFromCookie()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testIsRequestedSessionIdFromCookie() {
-        request.isRequestedSessionIdFromCookie();
+        assertFalse(request.isRequestedSessionIdFromCookie());
+        request.addHeader("Cookie", MockSessionManager.SESSION_COOKIE_NAME + "=abc");
+        assertTrue(request.isRequestedSessionIdFromCookie());
+        assertEquals("abc", request.getRequestedSessionId());
     }
 
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest#isRequestedSessionIdFromURL()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testIsRequestedSessionIdFromURL() {
-        request.isRequestedSessionIdFromURL();
+        assertFalse(request.isRequestedSessionIdFromURL());
+        request.setParameterMap(Map.of(MockSessionManager.SESSION_PARAMETER_NAME, "abc"));
+        assertTrue(request.isRequestedSessionIdFromURL());
+        request.addCookie(new Cookie(MockSessionManager.SESSION_COOKIE_NAME, "abc"));
+        assertFalse(request.isRequestedSessionIdFromURL());
     }
 
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest#isRequestedSessionIdValid()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testIsRequestedSessionIdValid() {
-        request.isRequestedSessionIdValid();
+        assertFalse(request.isRequestedSessionIdValid());
+        HttpSession session = request.getSession();
+        request.addCookie(new Cookie(MockSessionManager.SESSION_COOKIE_NAME, session.getId()));
+        assertTrue(request.isRequestedSessionIdValid());
+        session.invalidate();
+        assertFalse(request.isRequestedSessionIdValid());
+    }
+
+    @Test
+    public void testIsRequestedSessionIdValidWithSessionManager() {
+        MockSessionManager manager = new MockSessionManager();
+        request.setSessionManager(manager);
+        request.addCookie(new Cookie(MockSessionManager.SESSION_COOKIE_NAME, "unknown"));
+        assertFalse(request.isRequestedSessionIdValid());
+
+        MockJakartaHttpSession session = manager.createSession();
+        MockSlingJakartaHttpServletRequest other = new MockSlingJakartaHttpServletRequest(resourceResolver);
+        other.setSessionManager(manager);
+        other.addCookie(new Cookie(MockSessionManager.SESSION_COOKIE_NAME, session.getId()));
+        assertTrue(other.isRequestedSessionIdValid());
+    }
+
+    @Test
+    public void testSessionManagerResolvesSessionAcrossRequests() {
+        MockSessionManager manager = new MockSessionManager();
+        request.setSessionManager(manager);
+        HttpSession session = request.getSession();
+        assertTrue(session.isNew());
+        session.setAttribute("attr", "value");
+        assertEquals(1, manager.size());
+
+        MockSlingJakartaHttpServletRequest byCookie = new MockSlingJakartaHttpServletRequest(resourceResolver);
+        byCookie.setSessionManager(manager);
+        byCookie.addCookie(new Cookie(MockSessionManager.SESSION_COOKIE_NAME, session.getId()));
+        assertSame(session, byCookie.getSession(false));
+        assertFalse(session.isNew());
+
+        MockSlingJakartaHttpServletRequest byParameter = new MockSlingJakartaHttpServletRequest(resourceResolver);
+        byParameter.setSessionManager(manager);
+        byParameter.setParameterMap(Map.of(MockSessionManager.SESSION_PARAMETER_NAME, session.getId()));
+        assertSame(session, byParameter.getSession(false));
+
+        MockSlingJakartaHttpServletRequest unknown = new MockSlingJakartaHttpServletRequest(resourceResolver);
+        unknown.setSessionManager(manager);
+        assertNull(unknown.getSession(false));
+    }
+
+    @Test
+    public void testRequestedSessionIdDoesNotParseBody() throws IOException {
+        request.setQueryString(MockSessionManager.SESSION_PARAMETER_NAME + "=fromQuery");
+        request.setContentType("multipart/form-data; boundary=" + MultipartParserTest.BOUNDARY);
+        request.setContent(MultipartParserTest.body(MockSessionManager.SESSION_PARAMETER_NAME, null, "fromBody"));
+        request.setSessionManager(new MockSessionManager());
+        assertEquals("fromQuery", request.getRequestedSessionId());
+        assertTrue(request.isRequestedSessionIdFromURL());
+        request.getSession();
+
+        // the body is only parsed now, and fails with this configuration
+        request.setMultipartConfig(new MultipartConfigElement(null, -1, 1, 0));
+        assertThrows(IllegalStateException.class, () -> request.getParts());
+    }
+
+    @Test
+    public void testSessionManagerReplacesInvalidatedSession() {
+        MockSessionManager manager = new MockSessionManager();
+        request.setSessionManager(manager);
+        HttpSession session = request.getSession();
+        session.invalidate();
+        assertEquals(0, manager.size());
+        assertNull(request.getSession(false));
+
+        HttpSession newSession = request.getSession();
+        assertNotSame(session, newSession);
+        assertEquals(1, manager.size());
     }
 
     /**
@@ -810,9 +1351,25 @@ public class MockSlingJakartaHttpServletRequestTest {
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest#changeSessionId()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testChangeSessionId() {
-        request.changeSessionId();
+        assertThrows(IllegalStateException.class, request::changeSessionId);
+        HttpSession session = request.getSession();
+        String oldId = session.getId();
+        String newId = request.changeSessionId();
+        assertNotEquals(oldId, newId);
+        assertEquals(newId, session.getId());
+    }
+
+    @Test
+    public void testChangeSessionIdWithSessionManager() {
+        MockSessionManager manager = new MockSessionManager();
+        request.setSessionManager(manager);
+        HttpSession session = request.getSession();
+        String oldId = session.getId();
+        String newId = request.changeSessionId();
+        assertNull(manager.getSession(oldId));
+        assertSame(session, manager.getSession(newId));
     }
 
     /**
@@ -826,9 +1383,11 @@ public class MockSlingJakartaHttpServletRequestTest {
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest#getContentLengthLong()}.
      */
-    @Test(expected = UnsupportedOperationException.class)
+    @Test
     public void testGetContentLengthLong() {
-        request.getContentLengthLong();
+        assertEquals(0L, request.getContentLengthLong());
+        request.setContent(new byte[] {1, 2, 3});
+        assertEquals(3L, request.getContentLengthLong());
     }
 
     /**
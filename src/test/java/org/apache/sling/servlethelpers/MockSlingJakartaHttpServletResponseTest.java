@@ -18,7 +18,10 @@
  */
 package org.apache.sling.servlethelpers;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Iterator;
@@ -38,12 +41,14 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
@@ -126,6 +131,17 @@ public class MockSlingJakartaHttpServletResponseTest {
         assertEquals(0, response.getHeaderNames().size());
     }
 
+    @Test
+    public void testSetHeadersWhileIterating() {
+        response.addHeader("header1", "value1");
+        response.addHeader("header2", "value2");
+        for (String name : response.getHeaderNames()) {
+            response.setHeader(name, response.getHeader(name) + "-changed");
+        }
+        assertEquals("value1-changed", response.getHeader("header1"));
+        assertEquals("value2-changed", response.getHeader("header2"));
+    }
+
     @Test
     public void testRedirect() {
         response.sendRedirect("/location.html");
@@ -193,6 +209,54 @@ public class MockSlingJakartaHttpServletResponseTest {
         assertEquals(0, response.getOutput().length);
     }
 
+    @Test
+    public void testOutputViews() throws IOException {
+        final byte[] testData = "Hello World".getBytes(StandardCharsets.UTF_8);
+        response.getOutputStream().write(testData);
+
+        assertEquals(testData.length, response.getOutputLength());
+        try (InputStream in = response.getOutputAsStream()) {
+            assertArrayEquals(testData, in.readAllBytes());
+        }
+        ByteBuffer[] buffers = response.getOutputAsByteBuffers();
+        assertEquals(1, buffers.length);
+        assertTrue(buffers[0].isReadOnly());
+        assertEquals(testData.length, buffers[0].remaining());
+    }
+
+    @Test
+    public void testOutputSpillThreshold() throws IOException {
+        response.setOutputSpillThreshold(16);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final String content = "0123456789".repeat(100);
+        response.getWriter().write(content);
+
+        assertEquals(content.length(), response.getOutputLength());
+        assertEquals(content, response.getOutputAsString());
+        assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), response.getOutput());
+
+        response.resetBuffer();
+        assertEquals(0, response.getOutputLength());
+        assertEquals("", response.getOutputAsString());
+    }
+
+    @Test
+    public void testOutputTarget() throws IOException {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        response.setOutputTarget(target);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        assertFalse(response.isCommitted());
+
+        response.getWriter().write("Hello");
+        response.flushBuffer();
+
+        assertEquals("Hello", target.toString(StandardCharsets.UTF_8));
+        assertEquals(5, response.getOutputLength());
+        assertEquals(0, response.getOutput().length);
+        assertTrue(response.isCommitted());
+        assertThrows(IllegalStateException.class, response::resetBuffer);
+    }
+
     @Test
     public void testIsCommitted() {
         assertFalse(response.isCommitted());
@@ -218,6 +282,24 @@ public class MockSlingJakartaHttpServletResponseTest {
         assertNull(response.getCookies());
     }
 
+    @Test
+    public void testSetCookieHeaders() {
+        Cookie session = new Cookie("session", "abc");
+        session.setPath("/");
+        session.setHttpOnly(true);
+        response.addCookie(session);
+        Cookie removed = new Cookie("old", "");
+        removed.setMaxAge(0);
+        response.addCookie(removed);
+
+        assertThat(response.getHeaders("Set-Cookie"))
+                .containsExactly(
+                        "session=abc; HttpOnly; Path=/", "old=; Expires=Thu, 1 Jan 1970 00:00:00 GMT; Max-Age=0");
+
+        response.reset();
+        assertNull(response.getHeader("Set-Cookie"));
+    }
+
     @Test
     public void testLocale() {
         assertEquals(Locale.US, response.getLocale());
@@ -242,6 +324,19 @@ public class MockSlingJakartaHttpServletResponseTest {
         assertNotEquals(result1, result2);
     }
 
+    @Test
+    public void testAdaptToWithAdapterCache() {
+        when(adapterManager.getAdapter(response, String.class))
+                .thenAnswer(invocation -> UUID.randomUUID().toString());
+        response.setAdapterCacheEnabled(true);
+
+        String result1 = response.adaptTo(String.class);
+        assertSame(result1, response.adaptTo(String.class));
+
+        response.clearAdapterCache();
+        assertNotEquals(result1, response.adaptTo(String.class));
+    }
+
     /**
      * Test method for {@link org.apache.sling.servlethelpers.MockSlingJakartaHttpServletResponse#setIntHeader(java.lang.String, int)}.
      */
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import jakarta.servlet.MultipartConfigElement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class MultipartParserTest {
+
+    static final String BOUNDARY = "----boundary42";
+
+    private static final MultipartConfigElement IN_MEMORY =
+            new MultipartConfigElement(null, -1, -1, MultipartParser.DEFAULT_FILE_SIZE_THRESHOLD);
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /** Builds a multipart body, with parts given as name, filename (or null) and content */
+    static byte[] body(Object... parts) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < parts.length; i += 3) {
+            final String filename = (String) parts[i + 1];
+            out.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + parts[i] + "\""
+                            + (filename == null
+                                    ? ""
+                                    : "; filename=\"" + filename + "\"\r\nContent-Type: application/octet-stream")
+                            + "\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            final Object content = parts[i + 2];
+            out.write(
+                    content instanceof byte[]
+                            ? (byte[]) content
+                            : content.toString().getBytes(StandardCharsets.UTF_8));
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static List<MultipartPart> parse(byte[] body, MultipartConfigElement config) throws IOException {
+        return MultipartParser.parse(new ByteArrayInputStream(body), BOUNDARY, config, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] content(MultipartPart part) throws IOException {
+        try (InputStream in = part.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testGetBoundary() {
+        assertEquals("abc", MultipartParser.getBoundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartParser.getBoundary("Multipart/Form-Data; boundary=\"a b\"; other=x"));
+        assertNull(MultipartParser.getBoundary("multipart/form-data"));
+        assertNull(MultipartParser.getBoundary("text/plain; boundary=abc"));
+        assertNull(MultipartParser.getBoundary(null));
+    }
+
+    @Test
+    public void testParseHeaderParameters() {
+        Map<String, String> params = MultipartParser.parseHeaderParameters(
+                "form-data; NAME=\"a \\\"quoted\\\" name\"; filename=\"C:\\dir\\file.txt\"; flag");
+        assertEquals("a \"quoted\" name", params.get("name"));
+        assertEquals("C:\\dir\\file.txt", params.get("filename"));
+        assertTrue(params.containsKey("flag"));
+        assertTrue(MultipartParser.parseHeaderParameters("form-data").isEmpty());
+    }
+
+    @Test
+    public void testFieldsAndFiles() throws IOException {
+        List<MultipartPart> parts =
+                parse(body("field", null, "value", "file", "a.txt", "file content", "empty", null, ""), IN_MEMORY);
+        assertEquals(3, parts.size());
+
+        MultipartPart field = parts.get(0);
+        assertEquals("field", field.getName());
+        assertTrue(field.isFormField());
+        assertNull(field.getSubmittedFileName());
+        assertEquals("value", field.getString(StandardCharsets.UTF_8));
+
+        MultipartPart file = parts.get(1);
+        assertEquals("file", file.getName());
+        assertFalse(file.isFormField());
+        assertEquals("a.txt", file.getSubmittedFileName());
+        assertEquals("application/octet-stream", file.getContentType());
+        assertEquals("application/octet-stream", file.getHeader("content-type"));
+        assertEquals(12, file.getSize());
+        assertEquals("file content", new String(content(file), StandardCharsets.UTF_8));
+
+        assertEquals(0, parts.get(2).getSize());
+    }
+
+    @Test
+    public void testPreambleEpilogueAndPadding() throws IOException {
+        byte[] body = ("preamble\r\n--" + BOUNDARY + "  \r\nContent-Disposition: form-data; name=\"a\"\r\n\r\n1\r\n--"
+                        + BOUNDARY + "--\r\nepilogue")
+                .getBytes(StandardCharsets.US_ASCII);
+        List<MultipartPart> parts = parse(body, IN_MEMORY);
+        assertEquals(1, parts.size());
+        assertEquals("1", parts.get(0).getString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPartsWithoutNameAreIgnored() throws IOException {
+        byte[] body =
+                ("--" + BOUNDARY + "\r\n\r\nno headers\r\n--" + BOUNDARY + "--").getBytes(StandardCharsets.US_ASCII);
+        assertTrue(parse(body, IN_MEMORY).isEmpty());
+    }
+
+    @Test
+    public void testBinaryContentAcrossBufferBoundaries() throws IOException {
+        byte[] data = new byte[100_000];
+        new Random(42).nextBytes(data);
+        // near misses of the delimiter, including at the end of the content
+        byte[] nearMiss = ("\r\n--" + BOUNDARY.substring(0, 8)).getBytes(StandardCharsets.US_ASCII);
+        for (int pos = 0; pos + nearMiss.length < data.length; pos += 8191) {
+            System.arraycopy(nearMiss, 0, data, pos, nearMiss.length);
+        }
+        System.arraycopy(nearMiss, 0, data, data.length - nearMiss.length, nearMiss.length);
+
+        // a stream that returns small, irregular chunks
+        InputStream in = new ByteArrayInputStream(body("file", "data.bin", data, "after", null, "x")) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1000 + pos % 777));
+            }
+        };
+        List<MultipartPart> parts = MultipartParser.parse(in, BOUNDARY, IN_MEMORY, StandardCharsets.UTF_8);
+        assertEquals(2, parts.size());
+        assertArrayEquals(data, content(parts.get(0)));
+        assertEquals("x", parts.get(1).getString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLargePartsAreSpilled() throws IOException {
+        byte[] data = new byte[10_000];
+        new Random(7).nextBytes(data);
+        MultipartConfigElement config = new MultipartConfigElement(directory.toString(), -1, -1, 1024);
+        List<MultipartPart> parts = parse(body("small", null, "value", "large", "large.bin", data), config);
+
+        assertFalse(parts.get(0).isSpilled());
+        MultipartPart large = parts.get(1);
+        assertTrue(large.isSpilled());
+        assertEquals(data.length, large.getSize());
+        assertArrayEquals(data, content(large));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+
+        large.write("copy.bin");
+        assertArrayEquals(data, Files.readAllBytes(directory.resolve("copy.bin")));
+        Files.delete(directory.resolve("copy.bin"));
+
+        large.delete();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testMaxFileSize() throws IOException {
+        MultipartConfigElement config = new MultipartConfigElement(directory.toString(), 10, -1, 4);
+        byte[] body = body("ok", null, "0123456789", "file", "f.txt", "0123456789X");
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> parse(body, config));
+        assertTrue(e.getMessage(), e.getMessage().contains("file"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals("parts are released on failure", 0, files.count());
+        }
+    }
+
+    @Test
+    public void testMaxRequestSize() throws IOException {
+        byte[] body = body("a", null, "x".repeat(20_000));
+        MultipartConfigElement config = new MultipartConfigElement(null, -1, 10_000, 1024);
+        assertThrows(IllegalStateException.class, () -> parse(body, config));
+        MultipartConfigElement large = new MultipartConfigElement(null, -1, body.length, 1024);
+        assertEquals(1, parse(body, large).size());
+    }
+
+    @Test
+    public void testMalformedBodies() {
+        byte[] truncated = ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"a\"\r\n\r\nvalue")
+                .getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> parse(truncated, IN_MEMORY));
+        byte[] badBoundaryLine = ("--" + BOUNDARY + "xx\r\n").getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> parse(badBoundaryLine, IN_MEMORY));
+        byte[] noBoundary = "just text".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> parse(noBoundary, IN_MEMORY));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class QueryStringCodecTest {
+
+    private static final String[] SAMPLES = {
+        "", "plain", "with space", "a+b", "100%", "äöüß€!:!", "emoji 😀 here", "a=b&c", "*.-_~'()", "\u0000\u007f"
+    };
+
+    private static List<String> parse(String query) {
+        final List<String> result = new ArrayList<>();
+        QueryStringCodec.parse(query, (name, value) -> result.add(name + "=" + value));
+        return result;
+    }
+
+    @Test
+    public void testEncodeLikeUrlEncoder() {
+        for (String sample : SAMPLES) {
+            final StringBuilder sb = new StringBuilder();
+            QueryStringCodec.encode(sb, sample);
+            assertEquals(sample, URLEncoder.encode(sample, StandardCharsets.UTF_8), sb.toString());
+        }
+    }
+
+    @Test
+    public void testDecodeLikeUrlDecoder() {
+        for (String sample : SAMPLES) {
+            final String encoded = URLEncoder.encode(sample, StandardCharsets.UTF_8);
+            assertEquals(
+                    sample,
+                    URLDecoder.decode(encoded, StandardCharsets.UTF_8),
+                    QueryStringCodec.decode(encoded, 0, encoded.length()));
+        }
+        assertEquals("a b", QueryStringCodec.decode("a%20b", 0, 5));
+    }
+
+    @Test
+    public void testDecodeWithoutEscapesIsNotCopied() {
+        final String s = "plain";
+        assertSame(s, QueryStringCodec.decode(s, 0, s.length()));
+    }
+
+    @Test
+    public void testInvalidEscapes() {
+        assertThrows(IllegalArgumentException.class, () -> QueryStringCodec.decode("a%2", 0, 3));
+        assertThrows(IllegalArgumentException.class, () -> QueryStringCodec.decode("a%zz", 0, 4));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(
+                List.of("k1=v1", "k1=v2", "k2=v 3", "k3=null", "k4=null", "=x=null", "ä=b=c"),
+                parse("k1=v1&k1=v2&k2=v+3&&k3&k4=&=x&%C3%A4=b=c"));
+        assertEquals(List.of(), parse(""));
+        assertEquals(List.of(), parse("&&"));
+    }
+
+    @Test
+    public void testAppendPair() {
+        final StringBuilder sb = new StringBuilder();
+        QueryStringCodec.appendPair(sb, "a b", "c&d");
+        QueryStringCodec.appendPair(sb, "e", null);
+        assertEquals("a+b=c%26d&e=", sb.toString());
+    }
+}
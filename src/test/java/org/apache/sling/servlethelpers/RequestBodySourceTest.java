@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jakarta.servlet.ServletInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class RequestBodySourceTest {
+
+    private static final byte[] DATA = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile(getClass().getSimpleName(), ".tmp");
+        Files.write(file, DATA);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testStreamLimitedToLength() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(DATA);
+        RequestBodySource source = RequestBodySource.of(in, 4);
+        assertEquals(4, source.length());
+
+        ServletInputStream body = source.newServletInputStream();
+        assertFalse(body.isFinished());
+        assertEquals(1, body.skip(1));
+        assertEquals(3, body.available());
+        assertEquals(2, body.skip(2));
+        assertEquals('3', body.read());
+        assertTrue(body.isFinished());
+        assertEquals(-1, body.read());
+        assertEquals(-1, body.read(new byte[10], 0, 10));
+        assertEquals(0, body.skip(10));
+        assertEquals(0, body.available());
+        // the rest of the supplied stream is left unread
+        assertEquals(DATA.length - 4, in.available());
+    }
+
+    @Test
+    public void testStreamWithUnknownLength() throws IOException {
+        RequestBodySource source =
+                RequestBodySource.of(new ByteArrayInputStream(DATA), RequestBodySource.UNKNOWN_LENGTH);
+        assertArrayEquals(DATA, source.toByteArray());
+    }
+
+    @Test
+    public void testMappedInSeveralRegions() throws IOException {
+        RequestBodySource source = RequestBodySource.ofMapped(file, 0, RequestBodySource.UNKNOWN_LENGTH, 3);
+        assertEquals(DATA.length, source.length());
+        assertArrayEquals(DATA, source.toByteArray());
+        // each stream starts from the beginning
+        assertArrayEquals(DATA, source.toByteArray());
+    }
+
+    @Test
+    public void testMappedRegion() throws IOException {
+        RequestBodySource source = RequestBodySource.ofMapped(file, 5, 10, 4);
+        assertEquals(10, source.length());
+        assertEquals("56789abcde", new String(source.toByteArray(), StandardCharsets.US_ASCII));
+
+        try (InputStream in = source.open()) {
+            assertEquals(7, in.skip(7));
+            assertEquals('c', in.read());
+            assertEquals(2, in.available());
+        }
+    }
+
+    @Test
+    public void testEmptyMappedRegion() throws IOException {
+        RequestBodySource source = RequestBodySource.ofMapped(file, DATA.length, RequestBodySource.UNKNOWN_LENGTH);
+        assertEquals(0, source.length());
+        assertEquals(-1, source.open().read());
+    }
+
+    @Test
+    public void testInvalidMappedRegion() {
+        assertThrows(IllegalArgumentException.class, () -> RequestBodySource.ofMapped(file, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> RequestBodySource.ofMapped(file, DATA.length + 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> RequestBodySource.ofMapped(file, 10, 11));
+    }
+
+    @Test
+    public void testMappedBodyLargerThan2GB() throws IOException {
+        final long size = 3L * 1024 * 1024 * 1024;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // sparse file, no disk space is used for the zeros
+            raf.setLength(size);
+        }
+        MockSlingJakartaHttpServletRequest request = new MockSlingJakartaHttpServletRequest(null);
+        request.setMappedContent(file);
+        assertEquals(size, request.getContentLengthLong());
+        assertEquals(-1, request.getContentLength());
+
+        try (InputStream in = request.getInputStream()) {
+            assertEquals(size - 1, in.skip(size - 1));
+            assertEquals(0, in.read());
+            assertEquals(-1, in.read());
+            assertTrue(request.getInputStream().available() > 0);
+        }
+    }
+}
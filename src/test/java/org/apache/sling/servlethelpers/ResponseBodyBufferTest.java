@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseBodyBufferTest {
+
+    private ResponseBodyBuffer buffer;
+
+    @After
+    public void tearDown() {
+        if (buffer != null) {
+            buffer.release();
+        }
+    }
+
+    private static byte[] testData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static byte[] concat(ByteBuffer[] buffers) {
+        int size = 0;
+        for (ByteBuffer b : buffers) {
+            size += b.remaining();
+        }
+        byte[] result = new byte[size];
+        int pos = 0;
+        for (ByteBuffer b : buffers) {
+            int n = b.remaining();
+            b.get(result, pos, n);
+            pos += n;
+        }
+        return result;
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        buffer = new ResponseBodyBuffer(ResponseBodySupport.NO_SPILL);
+        assertEquals(0, buffer.size());
+        assertArrayEquals(new byte[0], buffer.toByteArray());
+        assertEquals("", buffer.toString(StandardCharsets.UTF_8));
+        assertEquals(0, buffer.toByteBuffers().length);
+        try (InputStream in = buffer.toInputStream()) {
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testSegmentedContent() throws IOException {
+        buffer = new ResponseBodyBuffer(ResponseBodySupport.NO_SPILL);
+        byte[] data = testData(1024 * 1024 + 17);
+        buffer.write(data[0]);
+        buffer.write(data, 1, data.length - 1);
+
+        assertFalse(buffer.isSpilled());
+        assertEquals(data.length, buffer.size());
+        assertArrayEquals(data, buffer.toByteArray());
+
+        ByteBuffer[] buffers = buffer.toByteBuffers();
+        assertTrue(buffers.length > 1);
+        assertTrue(buffers[0].isReadOnly());
+        assertArrayEquals(data, concat(buffers));
+
+        try (InputStream in = buffer.toInputStream()) {
+            assertEquals(data[0], (byte) in.read());
+            assertEquals(10, in.skip(10));
+            byte[] rest = in.readAllBytes();
+            assertEquals(data.length - 11, rest.length);
+            assertEquals(data[11], rest[0]);
+        }
+    }
+
+    @Test
+    public void testViewsAreNotAffectedByLaterWrites() throws IOException {
+        buffer = new ResponseBodyBuffer(ResponseBodySupport.NO_SPILL);
+        buffer.write("Hello".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer[] buffers = buffer.toByteBuffers();
+        buffer.write(" World".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("Hello", new String(concat(buffers), StandardCharsets.UTF_8));
+        assertEquals("Hello World", buffer.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSpillToFile() throws IOException {
+        buffer = new ResponseBodyBuffer(1000);
+        byte[] data = testData(5000);
+        buffer.write(data, 0, 600);
+        assertFalse(buffer.isSpilled());
+        buffer.write(data, 600, 600);
+        assertTrue(buffer.isSpilled());
+        buffer.write(data[1200]);
+        buffer.write(data, 1201, data.length - 1201);
+
+        assertEquals(data.length, buffer.size());
+        assertArrayEquals(data, buffer.toByteArray());
+        assertArrayEquals(data, concat(buffer.toByteBuffers()));
+        try (InputStream in = buffer.toInputStream()) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testSpillThresholdChange() throws IOException {
+        buffer = new ResponseBodyBuffer(ResponseBodySupport.NO_SPILL);
+        buffer.write(testData(100));
+        buffer.setSpillThreshold(50);
+        assertFalse(buffer.isSpilled());
+        buffer.write(1);
+        assertTrue(buffer.isSpilled());
+        assertEquals(101, buffer.toByteArray().length);
+    }
+
+    @Test
+    public void testInvalidRange() {
+        buffer = new ResponseBodyBuffer(ResponseBodySupport.NO_SPILL);
+        byte[] data = new byte[10];
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.write(data, 5, 6));
+    }
+}
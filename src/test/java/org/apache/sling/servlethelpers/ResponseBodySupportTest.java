@@ -21,6 +21,7 @@ package org.apache.sling.servlethelpers;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.WriteListener;
@@ -154,4 +155,28 @@ public class ResponseBodySupportTest {
             fail("Expected Unsupported encoding exception");
         }
     }
+
+    @Test
+    public void testGetOutputWithBulkWrites() throws IOException {
+        byte[] chunk = new byte[64 * 1024];
+        Arrays.fill(chunk, (byte) 'x');
+        ServletOutputStream outputStream = responseBodySupport.getOutputStream();
+        outputStream.write('a');
+        for (int i = 0; i < 128; i++) {
+            outputStream.write(chunk, 0, chunk.length);
+        }
+        outputStream.write(chunk, 10, 5);
+
+        byte[] output = responseBodySupport.getOutput();
+        assertEquals(1 + 128 * chunk.length + 5, output.length);
+        assertEquals('a', output[0]);
+        assertEquals('x', output[output.length - 1]);
+    }
+
+    @Test
+    public void testGetOutputStreamWriteInvalidRange() {
+        ServletOutputStream outputStream = responseBodySupport.getOutputStream();
+        assertThrows(IndexOutOfBoundsException.class, () -> outputStream.write(new byte[4], 2, 3));
+        assertArrayEquals(new byte[0], responseBodySupport.getOutput());
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.ServletException;
+import org.apache.sling.api.SlingJakartaHttpServletRequest;
+import org.apache.sling.api.SlingJakartaHttpServletResponse;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InternalRequestBatchTest {
+    private ResourceResolver resourceResolver;
+    private ExecutorService executor;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        resourceResolver = Mockito.mock(ResourceResolver.class);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void cleanup() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    private JakartaInternalRequest request(String path) {
+        return new JakartaServletInternalRequest(
+                new MockServletResolver(), new ServletResolutionResource(resourceResolver, path, null, null));
+    }
+
+    /** Request that waits a bit, or until released if its path is /block */
+    private JakartaInternalRequest slowRequest(String path) {
+        return new JakartaServletInternalRequest(
+                new MockServletResolver(), new ServletResolutionResource(resourceResolver, path, null, null)) {
+            @Override
+            protected void delegateExecute(
+                    SlingJakartaHttpServletRequest request,
+                    SlingJakartaHttpServletResponse response,
+                    ResourceResolver resourceResolver)
+                    throws ServletException, IOException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    if ("/block".equals(path)) {
+                        release.await();
+                    } else {
+                        Thread.sleep(20);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+                super.delegateExecute(request, response, resourceResolver);
+            }
+        };
+    }
+
+    @Test
+    public void resultsInOrder() throws IOException {
+        final JakartaInternalRequest first = request("/first");
+        final JakartaInternalRequest second = request("/second").withRequestMethod("STATUS");
+        final JakartaInternalRequest third = request("/EXCEPTION");
+        final JakartaInternalRequest fourth = request("/fourth");
+
+        final List<InternalRequestBatch.Result> results = new InternalRequestBatch()
+                .withExecutor(executor)
+                .add(first)
+                .add(second)
+                .add(third)
+                .add(fourth)
+                .execute();
+
+        assertEquals(4, results.size());
+        assertSame(first, results.get(0).getRequest());
+        assertTrue(results.get(0).isAccepted());
+        assertEquals(200, results.get(0).getStatus());
+        assertNull(results.get(0).getError());
+        assertTrue(first.getResponseAsString().startsWith("M_GET PI_/first"));
+
+        assertFalse(results.get(1).isAccepted());
+        assertEquals(451, results.get(1).getStatus());
+        assertNotNull(results.get(1).getError());
+
+        assertFalse(results.get(2).isAccepted());
+        assertEquals(-1, results.get(2).getStatus());
+        assertEquals("Failing as designed", results.get(2).getError().getMessage());
+
+        assertSame(fourth, results.get(3).getRequest());
+        assertTrue(results.get(3).isAccepted());
+    }
+
+    @Test
+    public void acceptedStatus() throws IOException {
+        final JakartaInternalRequest r = request("/status").withRequestMethod("STATUS");
+        final List<InternalRequestBatch.Result> results = new InternalRequestBatch()
+                .withExecutor(executor)
+                .withAcceptedStatus(200, 451)
+                .add(r)
+                .execute();
+        assertTrue(results.get(0).isAccepted());
+        // status was checked by the batch, so the response is available
+        assertTrue(r.getResponseAsString().isEmpty());
+    }
+
+    @Test
+    public void concurrencyLimit() throws IOException {
+        final InternalRequestBatch batch =
+                new InternalRequestBatch().withExecutor(executor).withConcurrency(3);
+        for (int i = 0; i < 12; i++) {
+            batch.add(slowRequest("/slow" + i));
+        }
+        final List<InternalRequestBatch.Result> results = batch.execute();
+        assertEquals(12, results.size());
+        results.forEach(r -> assertTrue(r.toString(), r.isAccepted()));
+        assertTrue("Expecting at most 3 concurrent requests, got " + maxRunning.get(), maxRunning.get() <= 3);
+    }
+
+    @Test
+    public void failFast() {
+        final InternalRequestBatch batch = new InternalRequestBatch()
+                .withExecutor(executor)
+                .withConcurrency(2)
+                .withFailFast(true)
+                .add(slowRequest("/block"))
+                .add(request("/EXCEPTION"))
+                .add(request("/never"));
+        try {
+            batch.execute();
+            fail("Expecting fail fast");
+        } catch (IOException expected) {
+            assertEquals("Failing as designed", expected.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void deadline() throws IOException {
+        final long start = System.nanoTime();
+        final List<InternalRequestBatch.Result> results = new InternalRequestBatch()
+                .withExecutor(executor)
+                .withDeadline(Duration.ofMillis(200))
+                .add(request("/fast"))
+                .add(slowRequest("/block"))
+                .execute();
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+        assertTrue(results.get(0).isAccepted());
+        assertFalse(results.get(1).isAccepted());
+        assertEquals(-1, results.get(1).getStatus());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidConcurrency() {
+        new InternalRequestBatch().withConcurrency(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullRequest() {
+        new InternalRequestBatch().add(null);
+    }
+}
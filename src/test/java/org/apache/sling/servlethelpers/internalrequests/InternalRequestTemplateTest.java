@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InternalRequestTemplateTest {
+    private ResourceResolver resourceResolver;
+
+    private final InternalRequestTemplate template = InternalRequestTemplate.builder()
+            .withPath("/451")
+            .withResourceType("quincy")
+            .withResourceSuperType("jones")
+            .withSelectors("leo", "nardo")
+            .withExtension("davinci")
+            .withRequestMethod("post")
+            .withContentType("the/type")
+            .withParameter("A", "alpha")
+            .build();
+
+    @Before
+    public void setup() {
+        resourceResolver = Mockito.mock(ResourceResolver.class);
+        Mockito.when(resourceResolver.getAttribute(Mockito.any(String.class))).thenReturn("RR_attribute");
+    }
+
+    @Test
+    public void slingRequest() throws IOException {
+        assertEquals(
+                "M_POST PI_/451.leo.nardo.davinci RPI_EXT_davinci RPI_SEL_leo.nardo RPI_P_/451 RT_quincy RST_jones RRA_RR_attribute CT_the/type P_{A=[alpha], B=[bravo]} B_",
+                template.newSlingRequest(resourceResolver, new MockSlingRequestProcessor())
+                        .withParameter("B", "bravo")
+                        .execute()
+                        .getResponseAsString());
+    }
+
+    @Test
+    public void servletRequest() throws IOException {
+        assertEquals(
+                "M_POST PI_/other.leo.nardo.davinci RPI_EXT_davinci RPI_SEL_leo.nardo RPI_P_/other RT_rt RST_null RRA_RR_attribute CT_the/type P_{A=[overridden]} B_",
+                template.newServletRequest(
+                                new MockServletResolver(),
+                                new ServletResolutionResource(resourceResolver, "/other", "rt", null))
+                        .withParameter("A", "overridden")
+                        .execute()
+                        .getResponseAsString());
+    }
+
+    @Test
+    public void templateIsNotModifiedByRequests() throws IOException {
+        template.newSlingRequest(resourceResolver, new MockSlingRequestProcessor())
+                .withParameter("C", "charlie")
+                .withSelectors("changed")
+                .execute();
+        template.newSlingRequest(resourceResolver, new MockSlingRequestProcessor())
+                .withParameters(Map.of("D", "delta"))
+                .execute();
+        assertEquals(
+                "M_POST PI_/x.leo.nardo.davinci RPI_EXT_davinci RPI_SEL_leo.nardo RPI_P_/x RT_quincy RST_jones RRA_RR_attribute CT_the/type P_{A=[alpha]} B_",
+                template.newSlingRequest(resourceResolver, new MockSlingRequestProcessor(), "/x")
+                        .execute()
+                        .getResponseAsString());
+    }
+
+    @Test
+    public void sharedBetweenThreads() throws IOException {
+        final List<CompletableFuture<JakartaInternalRequest>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(template.newSlingRequest(resourceResolver, new MockSlingRequestProcessor())
+                    .withParameter("N", String.valueOf(i))
+                    .executeAsync());
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            final String response = futures.get(i).join().getResponseAsString();
+            assertTrue(response, response.endsWith("P_{A=[alpha], N=[" + i + "]} B_"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void slingRequestRequiresPath() {
+        InternalRequestTemplate.builder().build().newSlingRequest(resourceResolver, new MockSlingRequestProcessor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullParameter() {
+        InternalRequestTemplate.builder().withParameter("key", null);
+    }
+}
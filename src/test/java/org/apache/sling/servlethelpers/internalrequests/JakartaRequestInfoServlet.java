@@ -20,9 +20,14 @@ package org.apache.sling.servlethelpers.internalrequests;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.servlet.ServletException;
 import org.apache.commons.io.IOUtils;
@@ -34,6 +39,13 @@ import org.apache.sling.api.servlets.SlingJakartaAllMethodsServlet;
 class JakartaRequestInfoServlet extends SlingJakartaAllMethodsServlet {
     private static final long serialVersionUID = 1L;
     private static final String PREFIX = "TEST_";
+
+    /** Released by tests to let the /STUBBORN request write its output */
+    static volatile CountDownLatch stubbornRelease = new CountDownLatch(0);
+
+    /** Completed with the outcome of the /STUBBORN request's write */
+    static volatile CompletableFuture<Throwable> stubbornWrite = new CompletableFuture<>();
+
     private final String resolutionInfo;
 
     JakartaRequestInfoServlet(SlingJakartaHttpServletRequest resolutionRequest) {
@@ -68,6 +80,33 @@ class JakartaRequestInfoServlet extends SlingJakartaAllMethodsServlet {
         if ("/EXCEPTION".equals(request.getResource().getPath())) {
             throw new IOException("Failing as designed");
         }
+        if ("/SLOW".equals(request.getResource().getPath())) {
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted as designed");
+            }
+        }
+        if ("/STUBBORN".equals(request.getResource().getPath())) {
+            // ignore interrupts, like code that swallows them, then write anyway
+            boolean released = false;
+            while (!released) {
+                try {
+                    released = stubbornRelease.await(60, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                    // keep waiting
+                }
+            }
+            try {
+                response.getOutputStream().write("too late".getBytes(StandardCharsets.UTF_8));
+                response.getOutputStream().flush();
+                stubbornWrite.complete(null);
+            } catch (IOException e) {
+                stubbornWrite.complete(e);
+            }
+            return;
+        }
         if ("/SERVLET-EXCEPTION".equals(request.getResource().getPath())) {
             throw new ServletException("Failing as designed");
         }
@@ -85,6 +124,18 @@ class JakartaRequestInfoServlet extends SlingJakartaAllMethodsServlet {
         response.getWriter().write(resolutionInfo);
         response.getWriter().write(" CT_" + request.getContentType());
         response.getWriter().write(" P_" + sorted);
+        if ("/ADAPT".equals(request.getResource().getPath())) {
+            final Object adapter = request.adaptTo(Object.class);
+            response.getWriter().write("A_" + (adapter != null && adapter == request.adaptTo(Object.class)));
+            return;
+        }
+        if ("/INPUTSTREAM".equals(request.getResource().getPath())) {
+            response.getWriter().write(" L_" + request.getContentLengthLong() + " IS_");
+            response.getWriter()
+                    .write(new String(IOUtils.toByteArray(request.getInputStream()), StandardCharsets.UTF_8));
+            response.getWriter().flush();
+            return;
+        }
         final BufferedReader body = request.getReader();
         if (body != null) {
             response.getWriter().write(" B_");
@@ -18,19 +18,42 @@
  */
 package org.apache.sling.servlethelpers.internalrequests;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletResponse;
+import org.apache.sling.api.SlingJakartaHttpServletRequest;
+import org.apache.sling.api.SlingJakartaHttpServletResponse;
+import org.apache.sling.api.adapter.AdapterManager;
+import org.apache.sling.api.adapter.SlingAdaptable;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.servlethelpers.MockSlingJakartaHttpServletResponse;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.Test.None;
 import org.mockito.Mockito;
+import org.slf4j.MDC;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -96,6 +119,67 @@ public class JakartaServletInternalRequestTest {
                         .getResponseAsString());
     }
 
+    @Test
+    public void readerBodyAsInputStream() throws IOException {
+        assertEquals(
+                "L_-1 IS_the body", inputStreamInfo(request("/INPUTSTREAM").withBody(new StringReader("the body"))));
+    }
+
+    @Test
+    public void inputStreamBody() throws IOException {
+        final byte[] body = "streamed body".getBytes(StandardCharsets.UTF_8);
+        assertEquals(
+                "L_13 IS_streamed body",
+                inputStreamInfo(request("/INPUTSTREAM").withBodyStream(new ByteArrayInputStream(body), body.length)));
+        assertTrue(request("/tuesday")
+                .withRequestMethod("post")
+                .withBodyStream(new ByteArrayInputStream(body), body.length)
+                .execute()
+                .getResponseAsString()
+                .endsWith(" B_streamed body"));
+    }
+
+    @Test
+    public void byteBufferBody() throws IOException {
+        final ByteBuffer body = ByteBuffer.wrap("xxbuffer body".getBytes(StandardCharsets.UTF_8));
+        body.position(2);
+        assertEquals(
+                "L_11 IS_buffer body", inputStreamInfo(request("/INPUTSTREAM").withBodyBuffer(body)));
+        assertEquals(2, body.position());
+    }
+
+    @Test
+    public void lastBodyWins() throws IOException {
+        assertEquals(
+                "L_3 IS_abc",
+                inputStreamInfo(request("/INPUTSTREAM")
+                        .withBody(new StringReader("replaced"))
+                        .withBodyBuffer(ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    private static String inputStreamInfo(JakartaInternalRequest request) throws IOException {
+        final String content = request.withRequestMethod("post").execute().getResponseAsString();
+        return content.substring(content.indexOf(" L_") + 1);
+    }
+
+    @Test
+    public void adapterCache() throws IOException {
+        final AdapterManager adapterManager = Mockito.mock(AdapterManager.class);
+        Mockito.when(adapterManager.getAdapter(Mockito.any(), Mockito.eq(Object.class)))
+                .thenAnswer(invocation -> new Object());
+        SlingAdaptable.setAdapterManager(adapterManager);
+        try {
+            assertTrue(request("/ADAPT").execute().getResponseAsString().endsWith("A_false"));
+            assertTrue(request("/ADAPT")
+                    .withAdapterCache(true)
+                    .execute()
+                    .getResponseAsString()
+                    .endsWith("A_true"));
+        } finally {
+            SlingAdaptable.unsetAdapterManager(adapterManager);
+        }
+    }
+
     @Test(expected = None.class)
     public void nullBody() throws IOException {
         request("/nullbody").withRequestMethod("post").withBody(null).execute();
@@ -128,6 +212,103 @@ public class JakartaServletInternalRequestTest {
         request("/EXCEPTION").execute();
     }
 
+    @Test
+    public void timeout() throws IOException {
+        final JakartaInternalRequest r = request("/SLOW").withTimeout(Duration.ofMillis(100));
+        final long start = System.currentTimeMillis();
+        try {
+            r.execute();
+            fail("Expecting a timeout");
+        } catch (InternalRequestTimeoutException expected) {
+            assertEquals(Duration.ofMillis(100), expected.getTimeout());
+        }
+        assertTrue("Expecting the execution to be abandoned", System.currentTimeMillis() - start < 30000);
+        assertTrue(r.isTimedOut());
+    }
+
+    @Test
+    public void noResponseOutputAfterTimeout() throws Exception {
+        JakartaRequestInfoServlet.stubbornRelease = new CountDownLatch(1);
+        JakartaRequestInfoServlet.stubbornWrite = new CompletableFuture<>();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final JakartaInternalRequest r =
+                request("/STUBBORN").withTimeout(Duration.ofMillis(100)).withResponseOutput(out);
+        try {
+            r.execute();
+            fail("Expecting a timeout");
+        } catch (InternalRequestTimeoutException expected) {
+            // the servlet keeps running and writes once released
+        }
+        JakartaRequestInfoServlet.stubbornRelease.countDown();
+        final Throwable writeFailure = JakartaRequestInfoServlet.stubbornWrite.get(30, TimeUnit.SECONDS);
+        assertTrue("Expecting the late write to be rejected", writeFailure instanceof IOException);
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void noResponseChangesAfterTimeout() throws Exception {
+        JakartaRequestInfoServlet.stubbornRelease = new CountDownLatch(1);
+        JakartaRequestInfoServlet.stubbornWrite = new CompletableFuture<>();
+        final JakartaInternalRequest r = request("/STUBBORN").withTimeout(Duration.ofMillis(100));
+        try {
+            r.execute();
+            fail("Expecting a timeout");
+        } catch (InternalRequestTimeoutException expected) {
+            // the servlet keeps running and writes once released
+        }
+        JakartaRequestInfoServlet.stubbornRelease.countDown();
+        assertEquals(null, JakartaRequestInfoServlet.stubbornWrite.get(30, TimeUnit.SECONDS));
+        final MockSlingJakartaHttpServletResponse response =
+                (MockSlingJakartaHttpServletResponse) r.checkStatus(200).getResponse();
+        assertEquals(0, response.getOutput().length);
+    }
+
+    @Test
+    public void timeoutWithBlockedResponseOutput() throws Exception {
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final OutputStream blocking = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    // ignore, like a sink that does not react to interrupts
+                }
+            }
+        };
+        final long start = System.currentTimeMillis();
+        try {
+            request("/monday")
+                    .withTimeout(Duration.ofMillis(200))
+                    .withResponseOutput(blocking)
+                    .execute();
+            fail("Expecting a timeout");
+        } catch (InternalRequestTimeoutException expected) {
+            assertTrue("Expecting the timeout to apply", System.currentTimeMillis() - start < 10000);
+        } finally {
+            unblock.countDown();
+        }
+    }
+
+    @Test
+    public void notTimedOut() throws IOException {
+        final JakartaInternalRequest r =
+                request("/fast").withTimeout(Duration.ofSeconds(30)).execute();
+        assertFalse(r.isTimedOut());
+        assertEquals(200, r.getStatus());
+        assertEquals(request("/fast").execute().getResponseAsString(), r.getResponseAsString());
+    }
+
+    @Test(expected = IOException.class)
+    public void servletExceptionWithTimeout() throws IOException {
+        request("/SERVLET-EXCEPTION").withTimeout(Duration.ofSeconds(30)).execute();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTimeout() {
+        request("/negative").withTimeout(Duration.ofMillis(-1));
+    }
+
     @Test(expected = IOException.class)
     public void servletServletException() throws IOException {
         request("/SERVLET-EXCEPTION").execute();
@@ -260,4 +441,116 @@ public class JakartaServletInternalRequestTest {
     public void testCheckNull() {
         request(null);
     }
+
+    private static final String MONDAY_RESPONSE =
+            "M_GET PI_/monday RPI_EXT_null RPI_SEL_null RPI_P_/monday RT_null RST_null RRA_RR_attribute CT_null P_{} B_";
+
+    @Test
+    public void responseOutputStream() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final JakartaInternalRequest r =
+                request("/monday").withResponseOutput(out).execute().checkStatus(200);
+        assertEquals(MONDAY_RESPONSE, out.toString(StandardCharsets.UTF_8));
+        assertTrue(r.getResponse().isCommitted());
+    }
+
+    @Test
+    public void responseOutputChannel() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request("/monday").withResponseOutput(Channels.newChannel(out)).execute();
+        assertEquals(MONDAY_RESPONSE, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void responseOutputConsumer() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request("/monday")
+                .withResponseOutput(buffer -> {
+                    assertTrue(buffer.isReadOnly());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer.get());
+                    }
+                })
+                .execute();
+        assertEquals(MONDAY_RESPONSE, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IOException.class)
+    public void responseOutputNotAvailableAsString() throws IOException {
+        request("/monday")
+                .withResponseOutput(new ByteArrayOutputStream())
+                .execute()
+                .getResponseAsString();
+    }
+
+    @Test
+    public void executeAsyncWithDefaultExecutor() throws Exception {
+        final JakartaInternalRequest r = request("/monday").executeAsync().get(10, TimeUnit.SECONDS);
+        assertEquals(MONDAY_RESPONSE, r.getResponseAsString());
+    }
+
+    @Test
+    public void executeAsyncKeepsStatusCheck() throws Exception {
+        final JakartaInternalRequest r = request("/async")
+                .withRequestMethod("STATUS")
+                .executeAsync(Runnable::run)
+                .get();
+        try {
+            r.getResponseAsString();
+            fail("Expecting status check to fail");
+        } catch (IOException asExpected) {
+            // expected
+        }
+        r.checkStatus(451);
+    }
+
+    @Test
+    public void executeAsyncFailure() throws Exception {
+        final CompletableFuture<JakartaInternalRequest> f =
+                request("/EXCEPTION").executeAsync(Runnable::run);
+        try {
+            f.get();
+            fail("Expecting execution to fail");
+        } catch (ExecutionException asExpected) {
+            assertTrue(asExpected.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void executeAsyncCarriesMdc() throws Exception {
+        final Map<String, String> seen = new HashMap<>();
+        final JakartaInternalRequest r =
+                new JakartaServletInternalRequest(
+                        new MockServletResolver(),
+                        new ServletResolutionResource(resourceResolver, "/mdc", null, null)) {
+                    @Override
+                    protected void delegateExecute(
+                            SlingJakartaHttpServletRequest request,
+                            SlingJakartaHttpServletResponse response,
+                            ResourceResolver resourceResolver)
+                            throws ServletException, IOException {
+                        seen.put("thread", Thread.currentThread().getName());
+                        seen.put("caller", MDC.get("caller"));
+                        seen.put(MDC_KEY, MDC.get(MDC_KEY));
+                    }
+                };
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        MDC.put("caller", "the caller");
+        try {
+            r.executeAsync(executor).get(10, TimeUnit.SECONDS);
+        } finally {
+            MDC.remove("caller");
+            executor.shutdown();
+        }
+        assertNotEquals(Thread.currentThread().getName(), seen.get("thread"));
+
+        // the MDC values can only be verified if the slf4j binding supports MDC
+        MDC.put("caller", "the caller");
+        final boolean mdcSupported = "the caller".equals(MDC.get("caller"));
+        MDC.remove("caller");
+        Assume.assumeTrue("slf4j binding does not support MDC", mdcSupported);
+        assertEquals("the caller", seen.get("caller"));
+        assertEquals(r.toString(), seen.get(BaseInternalRequest.MDC_KEY));
+    }
 }
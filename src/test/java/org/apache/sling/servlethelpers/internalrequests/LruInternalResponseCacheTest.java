@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.SlingJakartaHttpServletRequest;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.servlets.ServletResolver;
+import org.apache.sling.servlethelpers.MockSlingJakartaHttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class LruInternalResponseCacheTest {
+    private ResourceResolver resourceResolver;
+    private ServletResolver servletResolver;
+    private final AtomicLong clock = new AtomicLong();
+    private LruInternalResponseCache cache;
+
+    @Before
+    public void setup() {
+        resourceResolver = Mockito.mock(ResourceResolver.class);
+        final MockServletResolver delegate = new MockServletResolver();
+        servletResolver = Mockito.mock(ServletResolver.class);
+        Mockito.when(servletResolver.resolve(any(SlingJakartaHttpServletRequest.class)))
+                .thenAnswer(invocation ->
+                        delegate.resolve(invocation.getArgument(0, SlingJakartaHttpServletRequest.class)));
+        cache = new LruInternalResponseCache(2, Duration.ofSeconds(5), clock::get);
+    }
+
+    private JakartaInternalRequest request(String path) {
+        return new JakartaServletInternalRequest(
+                        servletResolver, new ServletResolutionResource(resourceResolver, path, "rt", null))
+                .withResponseCache(cache);
+    }
+
+    private static CachedResponse response(String body) throws IOException {
+        final MockSlingJakartaHttpServletResponse r = new MockSlingJakartaHttpServletResponse();
+        r.getWriter().write(body);
+        return CachedResponse.capture(r);
+    }
+
+    private void assertExecutions(int expected) {
+        verify(servletResolver, times(expected)).resolve(any(SlingJakartaHttpServletRequest.class));
+    }
+
+    @Test
+    public void repeatedRequestIsCached() throws IOException {
+        final JakartaInternalRequest first = request("/one").withParameter("A", "alpha");
+        final String expected = first.execute().getResponseAsString();
+        final JakartaInternalRequest second = request("/one").withParameter("A", "alpha");
+        assertEquals(expected, second.execute().getResponseAsString());
+
+        assertFalse(first.isServedFromCache());
+        assertTrue(second.isServedFromCache());
+        assertEquals("CT_null", second.getResponse().getContentType());
+        assertExecutions(1);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void differentRequestShapes() throws IOException {
+        request("/one").execute();
+        request("/one").withSelectors("sel").execute();
+        request("/one").withParameter("A", "alpha").execute();
+        request("/one").withCacheScope("alice").execute();
+        request("/one").withCacheScope("bob").execute();
+        assertExecutions(5);
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void parameterOrderDoesNotMatter() throws IOException {
+        request("/one").withParameter("A", "alpha").withParameter("B", "bravo").execute();
+        request("/one").withParameter("B", "bravo").withParameter("A", "alpha").execute();
+        assertExecutions(1);
+    }
+
+    @Test
+    public void notCached() throws IOException {
+        request("/one").withCacheBypass(true).execute();
+        request("/one").withCacheBypass(true).execute();
+        request("/one").withRequestMethod("POST").execute();
+        request("/one").withRequestMethod("POST").execute();
+        request("/one").withBody(new StringReader("body")).execute();
+        request("/one").withBody(new StringReader("body")).execute();
+        request("/one").withRequestMethod("STATUS").execute().checkStatus(451);
+        request("/one").withRequestMethod("STATUS").execute().checkStatus(451);
+        assertExecutions(8);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void streamedResponseNotCached() throws IOException {
+        request("/one").withResponseOutput(new ByteArrayOutputStream()).execute();
+        request("/one").withResponseOutput(new ByteArrayOutputStream()).execute();
+        assertExecutions(2);
+    }
+
+    @Test
+    public void expiration() throws IOException {
+        cache.put("k", response("body"));
+        clock.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertNotNull(cache.get("k"));
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.get("k"));
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void purgeExpired() throws IOException {
+        cache.put("a", response("a"));
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+        cache.put("b", response("b"));
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+        cache.purgeExpired();
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("b"));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws IOException {
+        cache.put("a", response("a"));
+        cache.put("b", response("b"));
+        cache.get("a");
+        cache.put("c", response("c"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void invalidate() throws IOException {
+        cache.put("a", response("a"));
+        cache.invalidate();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void captureAndReplay() throws IOException {
+        final MockSlingJakartaHttpServletResponse original = new MockSlingJakartaHttpServletResponse();
+        original.setStatus(201);
+        original.setContentType("text/plain;charset=UTF-8");
+        original.addHeader("X-Test", "one");
+        original.addHeader("X-Test", "two");
+        original.getWriter().write("the body");
+
+        final CachedResponse cached = CachedResponse.capture(original);
+        final MockSlingJakartaHttpServletResponse replayed = new MockSlingJakartaHttpServletResponse();
+        cached.replay(replayed);
+
+        assertEquals(201, replayed.getStatus());
+        assertEquals("text/plain;charset=UTF-8", replayed.getContentType());
+        assertEquals("UTF-8", replayed.getCharacterEncoding());
+        assertEquals("[one, two]", replayed.getHeaders("X-Test").toString());
+        assertArrayEquals(original.getOutput(), replayed.getOutput());
+        assertEquals(8, cached.getBodyLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidTtl() {
+        new LruInternalResponseCache(1, Duration.ZERO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSize() {
+        new LruInternalResponseCache(0, Duration.ofSeconds(1));
+    }
+}
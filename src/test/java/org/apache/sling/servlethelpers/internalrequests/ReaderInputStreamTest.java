@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ReaderInputStreamTest {
+
+    private static byte[] encode(String text, Charset charset) throws IOException {
+        try (InputStream in = new ReaderInputStream(new StringReader(text), charset)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test
+    public void emptyReader() throws IOException {
+        try (InputStream in = new ReaderInputStream(new StringReader(""), StandardCharsets.UTF_8)) {
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(new byte[4], 0, 4));
+        }
+    }
+
+    @Test
+    public void encodesWithCharset() throws IOException {
+        final String text = "grüße €";
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), encode(text, StandardCharsets.UTF_8));
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_16BE), encode(text, StandardCharsets.UTF_16BE));
+    }
+
+    @Test
+    public void largeInputWithSurrogatePairs() throws IOException {
+        // odd length, so surrogate pairs straddle the internal buffer boundaries
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10_001; i++) {
+            sb.append(i % 3 == 0 ? "😀" : "a");
+        }
+        final String text = sb.toString();
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), encode(text, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void singleByteReads() throws IOException {
+        try (InputStream in = new ReaderInputStream(new StringReader("éa"), StandardCharsets.UTF_8)) {
+            assertEquals(0xC3, in.read());
+            assertEquals(0xA9, in.read());
+            assertEquals('a', in.read());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void unmappableCharactersAreReplaced() throws IOException {
+        assertArrayEquals("a?b".getBytes(StandardCharsets.US_ASCII), encode("aéb", StandardCharsets.US_ASCII));
+    }
+}
@@ -22,6 +22,8 @@ import javax.servlet.ServletException;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -73,6 +75,14 @@ class RequestInfoServlet extends SlingAllMethodsServlet {
         if ("/EXCEPTION".equals(request.getResource().getPath())) {
             throw new IOException("Failing as designed");
         }
+        if ("/SLOW".equals(request.getResource().getPath())) {
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted as designed");
+            }
+        }
         if ("/SERVLET-EXCEPTION".equals(request.getResource().getPath())) {
             throw new ServletException("Failing as designed");
         }
@@ -90,6 +100,18 @@ class RequestInfoServlet extends SlingAllMethodsServlet {
         response.getWriter().write(resolutionInfo);
         response.getWriter().write(" CT_" + request.getContentType());
         response.getWriter().write(" P_" + sorted);
+        if ("/ADAPT".equals(request.getResource().getPath())) {
+            final Object adapter = request.adaptTo(Object.class);
+            response.getWriter().write("A_" + (adapter != null && adapter == request.adaptTo(Object.class)));
+            return;
+        }
+        if ("/INPUTSTREAM".equals(request.getResource().getPath())) {
+            response.getWriter().write(" L_" + request.getContentLengthLong() + " IS_");
+            response.getWriter()
+                    .write(new String(IOUtils.toByteArray(request.getInputStream()), StandardCharsets.UTF_8));
+            response.getWriter().flush();
+            return;
+        }
         final BufferedReader body = request.getReader();
         if (body != null) {
             response.getWriter().write(" B_");
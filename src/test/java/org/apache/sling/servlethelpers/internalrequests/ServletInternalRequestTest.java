@@ -20,11 +20,16 @@ package org.apache.sling.servlethelpers.internalrequests;
 
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.sling.api.adapter.AdapterManager;
+import org.apache.sling.api.adapter.SlingAdaptable;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,6 +37,7 @@ import org.junit.Test.None;
 import org.mockito.Mockito;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -101,6 +107,45 @@ public class ServletInternalRequestTest {
                         .getResponseAsString());
     }
 
+    @Test
+    public void inputStreamBody() throws IOException {
+        final byte[] body = "streamed body".getBytes(StandardCharsets.UTF_8);
+        final String content = request("/INPUTSTREAM")
+                .withRequestMethod("post")
+                .withBodyStream(new ByteArrayInputStream(body), body.length)
+                .execute()
+                .getResponseAsString();
+        assertTrue(content, content.endsWith(" L_13 IS_streamed body"));
+    }
+
+    @Test
+    public void readerBodyAsInputStream() throws IOException {
+        final String content = request("/INPUTSTREAM")
+                .withRequestMethod("post")
+                .withBody(new StringReader("the body"))
+                .execute()
+                .getResponseAsString();
+        assertTrue(content, content.endsWith(" L_-1 IS_the body"));
+    }
+
+    @Test
+    public void adapterCache() throws IOException {
+        final AdapterManager adapterManager = Mockito.mock(AdapterManager.class);
+        Mockito.when(adapterManager.getAdapter(Mockito.any(), Mockito.eq(Object.class)))
+                .thenAnswer(invocation -> new Object());
+        SlingAdaptable.setAdapterManager(adapterManager);
+        try {
+            assertTrue(request("/ADAPT").execute().getResponseAsString().endsWith("A_false"));
+            assertTrue(request("/ADAPT")
+                    .withAdapterCache(true)
+                    .execute()
+                    .getResponseAsString()
+                    .endsWith("A_true"));
+        } finally {
+            SlingAdaptable.unsetAdapterManager(adapterManager);
+        }
+    }
+
     @Test(expected = None.class)
     public void nullBody() throws IOException {
         request("/nullbody").withRequestMethod("post").withBody(null).execute();
@@ -133,6 +178,50 @@ public class ServletInternalRequestTest {
         request("/EXCEPTION").execute();
     }
 
+    @Test
+    public void timeout() throws IOException {
+        final InternalRequest r = request("/SLOW").withTimeout(Duration.ofMillis(100));
+        final long start = System.currentTimeMillis();
+        try {
+            r.execute();
+            fail("Expecting a timeout");
+        } catch (InternalRequestTimeoutException expected) {
+            assertEquals(Duration.ofMillis(100), expected.getTimeout());
+        }
+        assertTrue("Expecting the execution to be abandoned", System.currentTimeMillis() - start < 30000);
+        assertTrue(r.isTimedOut());
+    }
+
+    @Test
+    public void notTimedOut() throws IOException {
+        final InternalRequest r =
+                request("/fast").withTimeout(Duration.ofSeconds(30)).execute();
+        assertFalse(r.isTimedOut());
+        assertEquals(200, r.getStatus());
+    }
+
+    @Test(expected = IOException.class)
+    public void servletExceptionWithTimeout() throws IOException {
+        request("/SERVLET-EXCEPTION").withTimeout(Duration.ofSeconds(30)).execute();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTimeout() {
+        request("/negative").withTimeout(Duration.ofMillis(-1));
+    }
+
+    @Test
+    public void responseCache() throws IOException {
+        final LruInternalResponseCache cache = new LruInternalResponseCache();
+        final String expected =
+                request("/cached").withResponseCache(cache).execute().getResponseAsString();
+        final InternalRequest second =
+                request("/cached").withResponseCache(cache).execute();
+        assertTrue(second.isServedFromCache());
+        assertEquals(expected, second.getResponseAsString());
+        assertEquals(1, cache.getHitCount());
+    }
+
     @Test(expected = IOException.class)
     public void servletServletException() throws IOException {
         request("/SERVLET-EXCEPTION").execute();
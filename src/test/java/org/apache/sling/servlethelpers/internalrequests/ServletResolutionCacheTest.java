@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+
+import jakarta.servlet.Servlet;
+import org.apache.sling.api.SlingJakartaHttpServletRequest;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.servlets.ServletResolver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ServletResolutionCacheTest {
+    private ResourceResolver resourceResolver;
+    private ServletResolver servletResolver;
+    private ServletResolutionCache cache;
+
+    @Before
+    public void setup() {
+        resourceResolver = Mockito.mock(ResourceResolver.class);
+        final MockServletResolver delegate = new MockServletResolver();
+        servletResolver = Mockito.mock(ServletResolver.class);
+        Mockito.when(servletResolver.resolve(any(SlingJakartaHttpServletRequest.class)))
+                .thenAnswer(invocation ->
+                        delegate.resolve(invocation.getArgument(0, SlingJakartaHttpServletRequest.class)));
+        cache = new ServletResolutionCache(2);
+    }
+
+    @After
+    public void cleanup() {
+        cache.close();
+    }
+
+    private String execute(String path, String resourceType, String... selectors) throws IOException {
+        return new JakartaServletInternalRequest(
+                        servletResolver, new ServletResolutionResource(resourceResolver, path, resourceType, null))
+                .withServletResolutionCache(cache)
+                .withSelectors(selectors)
+                .execute()
+                .getResponseAsString();
+    }
+
+    @Test
+    public void cacheHits() throws IOException {
+        final String first = execute("/one", "rt/a", "sel");
+        // same resolution info as the first request, as the same Servlet instance is used
+        assertEquals(first, execute("/one", "rt/a", "sel"));
+        assertEquals(first, execute("/two", "rt/a", "sel"));
+
+        verify(servletResolver, times(1)).resolve(any(SlingJakartaHttpServletRequest.class));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void keyIncludesSelectorsAndResourceType() throws IOException {
+        execute("/one", "rt/a", "sel");
+        execute("/one", "rt/a", "other");
+        execute("/one", "rt/b", "sel");
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals("Expecting the cache to be bounded", 2, cache.size());
+    }
+
+    @Test
+    public void invalidation() throws IOException {
+        execute("/one", "rt/a");
+        execute("/one", "rt/b");
+        cache.invalidate("rt/a");
+        assertEquals(1, cache.size());
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        execute("/one", "rt/b");
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void servletNotFoundIsNotCached() {
+        final ServletResolver notFound = Mockito.mock(ServletResolver.class);
+        final Servlet s = cache.resolve(
+                notFound, new org.apache.sling.servlethelpers.MockSlingJakartaHttpServletRequest(resourceResolver));
+        assertEquals(null, s);
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSize() {
+        new ServletResolutionCache(0);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlethelpers.internalrequests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.ServletException;
+import org.apache.sling.api.SlingJakartaHttpServletRequest;
+import org.apache.sling.api.SlingJakartaHttpServletResponse;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.servlets.ServletResolver;
+import org.apache.sling.api.servlets.SlingJakartaAllMethodsServlet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+
+public class SingleFlightTest {
+    private static final int FOLLOWERS = 4;
+
+    private ResourceResolver resourceResolver;
+    private ServletResolver servletResolver;
+    private ExecutorService executor;
+    private ExecutorService followerExecutor;
+    private final List<Thread> followerThreads = new CopyOnWriteArrayList<>();
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean fail;
+
+    private class BlockingServlet extends SlingJakartaAllMethodsServlet {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void service(SlingJakartaHttpServletRequest request, SlingJakartaHttpServletResponse response)
+                throws IOException, ServletException {
+            final int n = executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (fail) {
+                throw new IOException("Failing as designed");
+            }
+            response.setContentType("text/plain");
+            response.getWriter().write("execution " + n);
+        }
+    }
+
+    @Before
+    public void setup() {
+        resourceResolver = Mockito.mock(ResourceResolver.class);
+        servletResolver = Mockito.mock(ServletResolver.class);
+        Mockito.when(servletResolver.resolve(any(SlingJakartaHttpServletRequest.class)))
+                .thenReturn(new BlockingServlet());
+        executor = Executors.newCachedThreadPool();
+        followerExecutor = Executors.newCachedThreadPool(r -> {
+            final Thread t = new Thread(r);
+            followerThreads.add(t);
+            return t;
+        });
+    }
+
+    @After
+    public void cleanup() {
+        release.countDown();
+        executor.shutdownNow();
+        followerExecutor.shutdownNow();
+    }
+
+    private JakartaInternalRequest request(String path) {
+        return new JakartaServletInternalRequest(
+                        servletResolver, new ServletResolutionResource(resourceResolver, path, "rt", null))
+                .withSingleFlight(true);
+    }
+
+    /** Start a leader request and FOLLOWERS identical ones, wait until they all wait for the leader's execution */
+    private List<CompletableFuture<JakartaInternalRequest>> startConcurrentRequests() throws Exception {
+        final List<CompletableFuture<JakartaInternalRequest>> result = new ArrayList<>();
+        result.add(request("/shared").executeAsync(executor));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final CountDownLatch arrived = new CountDownLatch(FOLLOWERS);
+        for (int i = 0; i < FOLLOWERS; i++) {
+            final JakartaInternalRequest follower = request("/shared");
+            result.add(CompletableFuture.supplyAsync(
+                    () -> {
+                        arrived.countDown();
+                        try {
+                            return follower.execute();
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    },
+                    followerExecutor));
+        }
+        assertTrue(arrived.await(5, TimeUnit.SECONDS));
+        // the leader is blocked, so a follower thread that is waiting waits for its response
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!followerThreads.stream().allMatch(t -> t.getState() == Thread.State.WAITING)) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Followers did not join the in-flight execution");
+            }
+            Thread.sleep(10);
+        }
+        return result;
+    }
+
+    @Test
+    public void concurrentRequestsShareOneExecution() throws Exception {
+        final List<CompletableFuture<JakartaInternalRequest>> futures = startConcurrentRequests();
+        release.countDown();
+
+        int shared = 0;
+        for (CompletableFuture<JakartaInternalRequest> f : futures) {
+            final JakartaInternalRequest r = f.get(5, TimeUnit.SECONDS);
+            assertEquals("execution 1", r.getResponseAsString());
+            assertEquals("text/plain", r.getResponse().getContentType());
+            shared += r.isSharedExecution() ? 1 : 0;
+        }
+        assertEquals(1, executions.get());
+        assertEquals(FOLLOWERS, shared);
+    }
+
+    @Test
+    public void failureIsShared() throws Exception {
+        fail = true;
+        final List<CompletableFuture<JakartaInternalRequest>> futures = startConcurrentRequests();
+        release.countDown();
+
+        for (CompletableFuture<JakartaInternalRequest> f : futures) {
+            try {
+                f.get(5, TimeUnit.SECONDS);
+                fail("Expecting an ExecutionException");
+            } catch (ExecutionException ee) {
+                assertTrue(ee.getCause() instanceof IOException);
+            }
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void sequentialRequestsAreNotShared() throws IOException {
+        release.countDown();
+        final JakartaInternalRequest first = request("/seq").execute();
+        final JakartaInternalRequest second = request("/seq").execute();
+        assertEquals("execution 1", first.getResponseAsString());
+        assertEquals("execution 2", second.getResponseAsString());
+        assertFalse(second.isSharedExecution());
+    }
+
+    @Test
+    public void requestsOfDifferentResolversAreNotShared() throws Exception {
+        final ServletResolver otherResolver = Mockito.mock(ServletResolver.class);
+        Mockito.when(otherResolver.resolve(any(SlingJakartaHttpServletRequest.class)))
+                .thenReturn(new BlockingServlet());
+        final CompletableFuture<JakartaInternalRequest> first = request("/app").executeAsync(executor);
+        final CompletableFuture<JakartaInternalRequest> second = new JakartaServletInternalRequest(
+                        otherResolver, new ServletResolutionResource(resourceResolver, "/app", "rt", null))
+                .withSingleFlight(true)
+                .executeAsync(executor);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (executions.get() < 2) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Expecting both requests to execute");
+            }
+            Thread.sleep(10);
+        }
+        release.countDown();
+        assertFalse(first.get(5, TimeUnit.SECONDS).isSharedExecution());
+        assertFalse(second.get(5, TimeUnit.SECONDS).isSharedExecution());
+    }
+
+    @Test
+    public void postIsNotShared() throws Exception {
+        final CompletableFuture<JakartaInternalRequest> first =
+                request("/post").withRequestMethod("POST").executeAsync(executor);
+        final CompletableFuture<JakartaInternalRequest> second =
+                request("/post").withRequestMethod("POST").executeAsync(executor);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (executions.get() < 2) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Expecting both requests to execute");
+            }
+            Thread.sleep(10);
+        }
+        release.countDown();
+        assertFalse(first.get(5, TimeUnit.SECONDS).isSharedExecution());
+        assertFalse(second.get(5, TimeUnit.SECONDS).isSharedExecution());
+    }
+}